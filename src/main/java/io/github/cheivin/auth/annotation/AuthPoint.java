@@ -12,15 +12,30 @@ import java.lang.annotation.*;
 @Inherited
 public @interface AuthPoint {
     /**
-     * 权限名称
+     * 权限名称，为空且设置了{@link #rule()}时只验证规则；两者不能都为空，启动时检查
      */
-    String privilege();
+    String privilege() default "";
+
+    /**
+     * 权限规则，SpEL表达式，如{@code hasRole('MANAGER') and #args[0].owner == user.uid}
+     * <p>
+     * 根对象为{@link io.github.cheivin.auth.authorization.RuleRoot}，方法参数为变量{@code #args}；
+     * 表达式只解析一次，并编译为字节码执行
+     */
+    String rule() default "";
 
     /**
      * 权限组
      */
     String namespace() default "";
 
+    /**
+     * 在路由阶段提前验证权限名称，需同时启用{@link io.github.cheivin.auth.authorization.RouteAuthorizationFilter}
+     * <p>
+     * 路由阶段尚未绑定方法参数，只有授权器不依赖{@link io.github.cheivin.auth.authorization.CheckPoint#getArgs()}时才应开启
+     */
+    boolean route() default false;
+
     /**
      * 忽略权限
      */
@@ -3,6 +3,7 @@ package io.github.cheivin.auth.authentication;
 import io.github.cheivin.auth.exception.TokenExpiredException;
 import io.github.cheivin.auth.exception.TokenInvalidException;
 import io.github.cheivin.auth.exception.TokenNotPresentException;
+import io.github.cheivin.auth.exception.TokenThrottledException;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -21,5 +22,9 @@ public interface AuthenticationErrorHandler {
         onTokenInvalid(request, response, e);
     }
 
+    default void onTokenThrottled(HttpServletRequest request, HttpServletResponse response, TokenThrottledException e) throws IOException {
+        onTokenInvalid(request, response, e);
+    }
+
     void onTokenInvalid(HttpServletRequest request, HttpServletResponse response, TokenInvalidException e) throws IOException;
 }
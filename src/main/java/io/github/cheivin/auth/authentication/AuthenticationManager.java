@@ -2,9 +2,12 @@ package io.github.cheivin.auth.authentication;
 
 import io.github.cheivin.auth.filter.AuthenticationFilter;
 import io.github.cheivin.auth.filter.BearerAuthenticationFilter;
+import io.github.cheivin.auth.filter.SlidingSessionRenewer;
+import io.github.cheivin.auth.metrics.AuthMetrics;
+import io.github.cheivin.auth.throttle.AuthenticationThrottle;
 import io.github.cheivin.auth.token.TokenStore;
+import io.github.cheivin.auth.trace.AuthTracer;
 import io.github.cheivin.auth.user.UserDetailsService;
-import org.springframework.http.HttpStatus;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import javax.servlet.FilterChain;
@@ -25,12 +28,21 @@ public class AuthenticationManager extends OncePerRequestFilter {
     private static final List<String> DEFAULT_EXCLUDE_PATTERNS = Collections.emptyList();
 
     private final AuthenticationFilter filter;
+    /**
+     * 未指定错误处理时创建的默认处理，随过滤器销毁
+     */
+    private final DefaultAuthenticationErrorHandler defaultErrorHandler;
 
-    private AuthenticationManager(UserDetailsService userDetailsService, TokenStore tokenStore, AuthenticationErrorHandler errorHandler, List<String> patterns, List<String> excludePathPatterns) {
+    private AuthenticationManager(UserDetailsService userDetailsService, TokenStore tokenStore, AuthenticationErrorHandler errorHandler, List<String> patterns, List<String> excludePathPatterns, AuthMetrics metrics, AuthTracer tracer, AuthenticationThrottle throttle, SlidingSessionRenewer renewer) {
         super();
-        filter = new BearerAuthenticationFilter(userDetailsService, tokenStore, errorHandler);
+        defaultErrorHandler = errorHandler == null ? new DefaultAuthenticationErrorHandler() : null;
+        filter = new BearerAuthenticationFilter(userDetailsService, tokenStore, errorHandler == null ? defaultErrorHandler : errorHandler);
         filter.addPathPatterns(patterns == null || patterns.isEmpty() ? DEFAULT_PATTERNS : patterns);
         filter.addExcludePathPatterns(excludePathPatterns == null ? DEFAULT_EXCLUDE_PATTERNS : excludePathPatterns);
+        filter.setMetrics(metrics);
+        filter.setTracer(tracer);
+        filter.setThrottle(throttle);
+        filter.setRenewer(renewer);
     }
 
     public static Builder builder(UserDetailsService userDetailsService, TokenStore tokenStore) {
@@ -42,19 +54,27 @@ public class AuthenticationManager extends OncePerRequestFilter {
         filter.doFilter(request, response, filterChain);
     }
 
+    @Override
+    public void destroy() {
+        super.destroy();
+        if (defaultErrorHandler != null) {
+            defaultErrorHandler.destroy();
+        }
+    }
+
     public static class Builder {
         private final UserDetailsService userDetailsService;
         private final TokenStore tokenStore;
         private List<String> patterns = new ArrayList<>();
         private List<String> excludePathPatterns = new ArrayList<>();
-        private AuthenticationErrorHandler errorHandler = (request, response, e) -> {
-            e.printStackTrace();
-            try {
-                response.sendError(HttpStatus.UNAUTHORIZED.value(), e.getMessage());
-            } catch (IOException ioException) {
-                ioException.printStackTrace();
-            }
-        };
+        private AuthMetrics metrics = AuthMetrics.NOOP;
+        private AuthTracer tracer = AuthTracer.NOOP;
+        private AuthenticationThrottle throttle;
+        private SlidingSessionRenewer renewer;
+        /**
+         * 为空时使用{@link DefaultAuthenticationErrorHandler}
+         */
+        private AuthenticationErrorHandler errorHandler;
 
         public Builder(UserDetailsService userDetailsService, TokenStore tokenStore) {
             this.userDetailsService = userDetailsService;
@@ -94,8 +114,28 @@ public class AuthenticationManager extends OncePerRequestFilter {
             return this;
         }
 
+        public Builder setMetrics(AuthMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public Builder setTracer(AuthTracer tracer) {
+            this.tracer = tracer;
+            return this;
+        }
+
+        public Builder setThrottle(AuthenticationThrottle throttle) {
+            this.throttle = throttle;
+            return this;
+        }
+
+        public Builder setSlidingSession(SlidingSessionRenewer renewer) {
+            this.renewer = renewer;
+            return this;
+        }
+
         public AuthenticationManager build() {
-            return new AuthenticationManager(userDetailsService, tokenStore, errorHandler, patterns, excludePathPatterns);
+            return new AuthenticationManager(userDetailsService, tokenStore, errorHandler, patterns, excludePathPatterns, metrics, tracer, throttle, renewer);
         }
     }
 }
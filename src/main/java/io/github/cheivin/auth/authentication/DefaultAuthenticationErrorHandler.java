@@ -0,0 +1,146 @@
+package io.github.cheivin.auth.authentication;
+
+import io.github.cheivin.auth.exception.TokenExpiredException;
+import io.github.cheivin.auth.exception.TokenInvalidException;
+import io.github.cheivin.auth.exception.TokenNotPresentException;
+import io.github.cheivin.auth.exception.TokenThrottledException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 默认认证失败处理
+ * <p>
+ * 直接写出预先生成的响应体，不经过容器错误页转发；
+ * 失败日志按秒限流并在后台线程输出，超出限额的日志只计数，在下一条日志中汇总。
+ * 不再使用时需调用{@link #destroy()}关闭日志线程。
+ */
+@Slf4j
+public class DefaultAuthenticationErrorHandler implements AuthenticationErrorHandler, DisposableBean {
+    /**
+     * 默认每秒日志条数
+     */
+    protected static final int DEFAULT_LOGS_PER_SECOND = 10;
+    private static final int LOG_QUEUE_SIZE = 256;
+
+    private static final byte[] NOT_PRESENT_BODY = body(HttpStatus.UNAUTHORIZED, "token not present");
+    private static final byte[] EXPIRED_BODY = body(HttpStatus.UNAUTHORIZED, "token expired");
+    private static final byte[] INVALID_BODY = body(HttpStatus.UNAUTHORIZED, "token invalid");
+    private static final byte[] THROTTLED_BODY = body(HttpStatus.TOO_MANY_REQUESTS, "too many failed authentication attempts");
+
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    private final int logsPerSecond;
+    /**
+     * 日志限流窗口：高32位为当前秒，低32位为该秒已输出条数，以CAS整体更新
+     */
+    private final AtomicLong window = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+    private final ThreadPoolExecutor logExecutor;
+
+    public DefaultAuthenticationErrorHandler() {
+        this(DEFAULT_LOGS_PER_SECOND);
+    }
+
+    /**
+     * @param logsPerSecond 每秒最多输出的失败日志条数，0为不输出
+     */
+    public DefaultAuthenticationErrorHandler(int logsPerSecond) {
+        this.logsPerSecond = logsPerSecond;
+        this.logExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(LOG_QUEUE_SIZE),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "auth-error-log");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+        this.logExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    private static byte[] body(HttpStatus status, String message) {
+        return ("{\"status\":" + status.value() + ",\"error\":\"" + status.getReasonPhrase() + "\",\"message\":\"" + message + "\"}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void onTokenNotPresent(HttpServletRequest request, HttpServletResponse response, TokenNotPresentException e) throws IOException {
+        log(request, e);
+        write(response, HttpStatus.UNAUTHORIZED, NOT_PRESENT_BODY);
+    }
+
+    @Override
+    public void onTokenExpired(HttpServletRequest request, HttpServletResponse response, TokenExpiredException e) throws IOException {
+        log(request, e);
+        write(response, HttpStatus.UNAUTHORIZED, EXPIRED_BODY);
+    }
+
+    @Override
+    public void onTokenInvalid(HttpServletRequest request, HttpServletResponse response, TokenInvalidException e) throws IOException {
+        log(request, e);
+        write(response, HttpStatus.UNAUTHORIZED, INVALID_BODY);
+    }
+
+    @Override
+    public void onTokenThrottled(HttpServletRequest request, HttpServletResponse response, TokenThrottledException e) throws IOException {
+        log(request, e);
+        write(response, HttpStatus.TOO_MANY_REQUESTS, THROTTLED_BODY);
+    }
+
+    protected void write(HttpServletResponse response, HttpStatus status, byte[] body) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private void log(HttpServletRequest request, TokenInvalidException e) {
+        if (!tryAcquire()) {
+            suppressed.incrementAndGet();
+            return;
+        }
+        String uri = request.getRequestURI();
+        logExecutor.execute(() -> {
+            long skipped = suppressed.getAndSet(0);
+            if (log.isDebugEnabled()) {
+                log.debug("Authentication failed for {}: {}, {} similar messages suppressed", uri, e.getMessage(), skipped, e.getCause());
+            } else {
+                log.warn("Authentication failed for {}: {}, {} similar messages suppressed", uri, e.getMessage(), skipped);
+            }
+        });
+    }
+
+    private boolean tryAcquire() {
+        if (logsPerSecond <= 0) {
+            return false;
+        }
+        long second = System.currentTimeMillis() / 1000 & COUNT_MASK;
+        long current, next;
+        do {
+            current = window.get();
+            if (current >>> 32 != second) {
+                next = second << 32 | 1;
+            } else if ((current & COUNT_MASK) < logsPerSecond) {
+                next = current + 1;
+            } else {
+                return false;
+            }
+        } while (!window.compareAndSet(current, next));
+        return true;
+    }
+
+    @Override
+    public void destroy() {
+        logExecutor.shutdown();
+    }
+}
@@ -0,0 +1,15 @@
+package io.github.cheivin.auth.authorization;
+
+import io.github.cheivin.auth.exception.UnauthorizedException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 过滤器阶段授权失败处理
+ */
+public interface AuthorizationErrorHandler {
+
+    void onUnauthorized(HttpServletRequest request, HttpServletResponse response, UnauthorizedException e) throws IOException;
+}
@@ -1,8 +1,11 @@
 package io.github.cheivin.auth.authorization;
 
-import io.github.cheivin.auth.annotation.AuthAspect;
 import io.github.cheivin.auth.annotation.AuthPoint;
 import io.github.cheivin.auth.exception.UnauthorizedException;
+import io.github.cheivin.auth.metrics.AuthMetrics;
+import io.github.cheivin.auth.metrics.AuthMetrics.Outcome;
+import io.github.cheivin.auth.metrics.AuthMetrics.Stage;
+import io.github.cheivin.auth.trace.AuthTracer;
 import io.github.cheivin.auth.user.UserDetails;
 import io.github.cheivin.auth.user.UserDetailsHolder;
 import lombok.extern.slf4j.Slf4j;
@@ -10,47 +13,116 @@ import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
 import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.MethodClassKey;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
 
 import java.lang.reflect.Method;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 权限验证管理器
+ * <p>
+ * 作为容器中的bean时，所有单例创建后解析容器中标注了{@link AuthPoint}的方法，
+ * 权限点配置错误时启动失败，而不是在首次请求时失败
  */
 @Aspect
 @Slf4j
-public class AuthorizationManager {
+public class AuthorizationManager implements BeanFactoryAware, SmartInitializingSingleton {
     /**
      * 权限管理
      */
     private final AuthorizationGranter granter;
+    /**
+     * 指标记录
+     */
+    private final AuthMetrics metrics;
+    /**
+     * 阶段追踪
+     */
+    private final AuthTracer tracer;
+    /**
+     * 权限点缓存
+     */
+    private final Map<MethodClassKey, AuthorizationPoint> points = new ConcurrentHashMap<>();
+
+    private ListableBeanFactory beanFactory;
 
     public AuthorizationManager(AuthorizationGranter granter) {
+        this(granter, AuthMetrics.NOOP);
+    }
+
+    public AuthorizationManager(AuthorizationGranter granter, AuthMetrics metrics) {
+        this(granter, metrics, AuthTracer.NOOP);
+    }
+
+    public AuthorizationManager(AuthorizationGranter granter, AuthMetrics metrics, AuthTracer tracer) {
         this.granter = granter;
+        this.metrics = metrics == null ? AuthMetrics.NOOP : metrics;
+        this.tracer = tracer == null ? AuthTracer.NOOP : tracer;
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) {
+        if (beanFactory instanceof ListableBeanFactory) {
+            this.beanFactory = (ListableBeanFactory) beanFactory;
+        }
+    }
+
+    /**
+     * 解析并缓存容器中所有权限点，只读取bean类型，不初始化延迟加载的bean
+     *
+     * @throws BeanInitializationException 权限点配置错误
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (beanFactory == null) {
+            return;
+        }
+        for (String beanName : beanFactory.getBeanNamesForType(Object.class, true, false)) {
+            Class<?> beanType = beanFactory.getType(beanName, false);
+            if (beanType == null) {
+                continue;
+            }
+            Class<?> targetClass = ClassUtils.getUserClass(beanType);
+            if (!AnnotationUtils.isCandidateClass(targetClass, AuthPoint.class)) {
+                continue;
+            }
+            ReflectionUtils.doWithMethods(targetClass, method -> {
+                try {
+                    points.putIfAbsent(new MethodClassKey(method, targetClass), AuthorizationPoint.resolve(targetClass, method));
+                } catch (IllegalArgumentException e) {
+                    throw new BeanInitializationException("Invalid @AuthPoint in bean '" + beanName + "': " + e.getMessage(), e);
+                }
+            }, method -> method.isAnnotationPresent(AuthPoint.class));
+        }
     }
 
     @Before("@annotation(io.github.cheivin.auth.annotation.AuthPoint) || @within(io.github.cheivin.auth.annotation.AuthAspect)")
     public void authMethod(JoinPoint joinPoint) throws UnauthorizedException {
         Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
-        AuthPoint authPoint = method.getAnnotation(AuthPoint.class);
-        if (authPoint != null && authPoint.ignore()) {
+        Class<?> targetClass = joinPoint.getTarget().getClass();
+        // 获取权限点信息
+        AuthorizationPoint point = points.computeIfAbsent(new MethodClassKey(method, targetClass),
+                key -> AuthorizationPoint.resolve(targetClass, method));
+        if (point == null || point.isIgnore()) {
             return;
         }
-        AuthAspect authAspect = joinPoint.getTarget().getClass().getAnnotation(AuthAspect.class);
-
-        // 获取权限点信息
-        String namespace, privilege;
-        if (authPoint == null) {
-            privilege = method.getName();
-            namespace = authAspect.namespace();
-        } else {
-            privilege = authPoint.privilege();
-            namespace = authPoint.namespace();
-            ;
-            if (authAspect != null && "".equals(namespace)) {
-                namespace = authAspect.namespace();
-            }
+        // 路由阶段已验证权限名称时只验证规则
+        boolean routeAuthorized = point.isRoute() && RouteAuthorizations.isAuthorized(method);
+        if (routeAuthorized && !point.hasRule()) {
+            return;
         }
+        long start = metrics.start();
+        long mark = tracer.now();
         // 验证授权
         Optional<UserDetails> detailsOptional = UserDetailsHolder.currentUser();
         CheckPoint checkPoint = new CheckPoint(
@@ -59,8 +131,18 @@ public class AuthorizationManager {
                 joinPoint.getArgs(),
                 detailsOptional.orElse(null)
         );
-        if (!granter.authorize(namespace, privilege, checkPoint)) {
-            throw new UnauthorizedException(namespace, privilege);
+        // 授权器抛出异常时同样记录耗时
+        Outcome outcome = Outcome.ERROR;
+        boolean authorized;
+        try {
+            authorized = routeAuthorized ? point.authorizeRule(checkPoint) : point.authorize(granter, checkPoint);
+            outcome = authorized ? Outcome.OK : Outcome.UNAUTHORIZED;
+        } finally {
+            tracer.stage(AuthTracer.Stage.AUTHORIZATION, mark);
+            metrics.record(Stage.AUTHORIZATION, outcome, start);
+        }
+        if (!authorized) {
+            throw new UnauthorizedException(point.getNamespace(), point.getPrivilege());
         }
     }
 }
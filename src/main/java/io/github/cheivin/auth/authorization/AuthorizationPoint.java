@@ -0,0 +1,152 @@
+package io.github.cheivin.auth.authorization;
+
+import io.github.cheivin.auth.annotation.AuthAspect;
+import io.github.cheivin.auth.annotation.AuthPoint;
+
+import java.lang.reflect.Method;
+import java.util.Objects;
+
+/**
+ * 解析后的权限点
+ */
+class AuthorizationPoint {
+    /**
+     * 忽略权限验证
+     */
+    static final AuthorizationPoint IGNORED = new AuthorizationPoint("", "", null, false, true);
+
+    private final String namespace;
+    private final String privilege;
+    private final AuthorizationRule rule;
+    private final boolean route;
+    private final boolean ignore;
+
+    private AuthorizationPoint(String namespace, String privilege, AuthorizationRule rule, boolean route, boolean ignore) {
+        this.namespace = namespace;
+        this.privilege = privilege;
+        this.rule = rule;
+        this.route = route;
+        this.ignore = ignore;
+    }
+
+    /**
+     * 解析方法权限点
+     *
+     * @param targetClass 目标类
+     * @param method      方法
+     * @return 权限点，未标注权限注解时为null
+     * @throws IllegalArgumentException 权限名称和规则都未设置，或规则表达式无效
+     */
+    static AuthorizationPoint resolve(Class<?> targetClass, Method method) {
+        AuthPoint authPoint = method.getAnnotation(AuthPoint.class);
+        if (authPoint != null && authPoint.ignore()) {
+            return IGNORED;
+        }
+        AuthAspect authAspect = targetClass.getAnnotation(AuthAspect.class);
+        if (authPoint == null) {
+            if (authAspect == null) {
+                return null;
+            }
+            return new AuthorizationPoint(authAspect.namespace(), method.getName(), null, false, false);
+        }
+        String namespace = authPoint.namespace();
+        if (authAspect != null && "".equals(namespace)) {
+            namespace = authAspect.namespace();
+        }
+        AuthorizationRule rule = "".equals(authPoint.rule()) ? null
+                : new AuthorizationRule(authPoint.rule(), method.getDeclaringClass().getClassLoader());
+        if (rule == null && "".equals(authPoint.privilege())) {
+            throw new IllegalArgumentException("AuthPoint on " + method + " requires a privilege or a rule");
+        }
+        return new AuthorizationPoint(namespace, authPoint.privilege(), rule, authPoint.route(), false);
+    }
+
+    /**
+     * 验证权限，设置了规则时需规则通过；未设置规则或设置了权限名称时需授权器授权
+     *
+     * @param granter    授权器
+     * @param checkPoint 检查点
+     * @return 是否通过
+     */
+    boolean authorize(AuthorizationGranter granter, CheckPoint checkPoint) {
+        if (rule != null && !rule.matches(checkPoint)) {
+            return false;
+        }
+        return !hasPrivilege() || granter.authorize(namespace, privilege, checkPoint);
+    }
+
+    /**
+     * 只验证规则，权限名称已在路由阶段验证
+     *
+     * @param checkPoint 检查点
+     * @return 是否通过
+     */
+    boolean authorizeRule(CheckPoint checkPoint) {
+        return rule == null || rule.matches(checkPoint);
+    }
+
+    /**
+     * 只验证权限名称，不验证规则
+     *
+     * @param granter    授权器
+     * @param checkPoint 检查点
+     * @return 是否通过
+     */
+    boolean authorizePrivilege(AuthorizationGranter granter, CheckPoint checkPoint) {
+        return !hasPrivilege() || granter.authorize(namespace, privilege, checkPoint);
+    }
+
+    /**
+     * 是否需要授权器授权
+     */
+    boolean hasPrivilege() {
+        return rule == null || !"".equals(privilege);
+    }
+
+    /**
+     * 是否在路由阶段验证权限名称
+     */
+    boolean isRoute() {
+        return route;
+    }
+
+    /**
+     * 是否有规则
+     */
+    boolean hasRule() {
+        return rule != null;
+    }
+
+    String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * 权限名称，只有规则时为规则表达式
+     */
+    String getPrivilege() {
+        return "".equals(privilege) && rule != null ? rule.getSource() : privilege;
+    }
+
+    boolean isIgnore() {
+        return ignore;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AuthorizationPoint)) {
+            return false;
+        }
+        AuthorizationPoint that = (AuthorizationPoint) o;
+        return ignore == that.ignore && route == that.route && namespace.equals(that.namespace) && privilege.equals(that.privilege)
+                && Objects.equals(rule == null ? null : rule.getSource(), that.rule == null ? null : that.rule.getSource());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(namespace, privilege, rule == null ? null : rule.getSource(), route, ignore);
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.cheivin.auth.authorization;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.expression.EvaluationException;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ParseException;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+/**
+ * 权限规则
+ * <p>
+ * 表达式在权限点解析时编译一次，以混合模式执行：首次解释执行确定类型后编译为字节码，类型变化时回退解释执行并重新编译。
+ */
+@Slf4j
+class AuthorizationRule {
+    private static final String ARGS_VARIABLE = "args";
+
+    private final String source;
+    private final Expression expression;
+
+    AuthorizationRule(String source, ClassLoader classLoader) {
+        this.source = source;
+        SpelExpressionParser parser = new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.MIXED, classLoader));
+        try {
+            this.expression = parser.parseExpression(source);
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid auth rule: " + source, e);
+        }
+    }
+
+    /**
+     * 验证规则，未登录或表达式执行出错时视为不通过
+     *
+     * @param checkPoint 检查点
+     * @return 是否通过
+     */
+    boolean matches(CheckPoint checkPoint) {
+        if (checkPoint.getUserDetails() == null) {
+            return false;
+        }
+        StandardEvaluationContext context = new StandardEvaluationContext(new RuleRoot(checkPoint));
+        context.setVariable(ARGS_VARIABLE, checkPoint.getArgs());
+        try {
+            return Boolean.TRUE.equals(expression.getValue(context, Boolean.class));
+        } catch (EvaluationException e) {
+            log.debug("Auth rule [{}] evaluation failed", source, e);
+            return false;
+        }
+    }
+
+    String getSource() {
+        return source;
+    }
+}
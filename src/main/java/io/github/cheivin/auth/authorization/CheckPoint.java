@@ -1,6 +1,7 @@
 package io.github.cheivin.auth.authorization;
 
 import io.github.cheivin.auth.user.UserDetails;
+import io.github.cheivin.auth.user.UserDetailsHolder;
 
 import java.lang.reflect.Method;
 
@@ -12,12 +13,18 @@ public class CheckPoint {
     private final Method method;
     private final Object[] args;
     private final UserDetails userDetails;
+    private final boolean argsBound;
 
     public CheckPoint(Class<?> target, Method method, Object[] args, UserDetails userDetails) {
+        this(target, method, args, userDetails, true);
+    }
+
+    public CheckPoint(Class<?> target, Method method, Object[] args, UserDetails userDetails, boolean argsBound) {
         this.target = target;
         this.method = method;
         this.args = args;
         this.userDetails = userDetails;
+        this.argsBound = argsBound;
     }
 
     public Class<?> getTarget() {
@@ -35,4 +42,23 @@ public class CheckPoint {
     public UserDetails getUserDetails() {
         return userDetails;
     }
+
+    /**
+     * 方法参数是否已绑定，路由阶段验证时为false，{@link #getArgs()}为空数组
+     *
+     * @return 是否已绑定
+     */
+    public boolean isArgsBound() {
+        return argsBound;
+    }
+
+    /**
+     * 用户是否拥有角色，包括继承得到的角色
+     *
+     * @param role 角色
+     * @return 是否拥有
+     */
+    public boolean hasRole(String role) {
+        return userDetails != null && UserDetailsHolder.getRoleHierarchy().hasRole(userDetails.getRoles(), role);
+    }
 }
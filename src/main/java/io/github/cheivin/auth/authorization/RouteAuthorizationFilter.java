@@ -0,0 +1,211 @@
+package io.github.cheivin.auth.authorization;
+
+import io.github.cheivin.auth.exception.UnauthorizedException;
+import io.github.cheivin.auth.metrics.AuthMetrics;
+import io.github.cheivin.auth.metrics.AuthMetrics.Outcome;
+import io.github.cheivin.auth.metrics.AuthMetrics.Stage;
+import io.github.cheivin.auth.trace.AuthTracer;
+import io.github.cheivin.auth.user.UserDetailsHolder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.cors.CorsUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.util.ServletRequestPathUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 路由级权限验证
+ * <p>
+ * 容器刷新完成后扫描请求映射中标注{@link io.github.cheivin.auth.annotation.AuthAspect}/{@link io.github.cheivin.auth.annotation.AuthPoint}的处理方法，
+ * 构建不可变的权限路由表，在过滤器阶段验证权限，未授权的请求在MVC分发、参数绑定及请求体反序列化之前被拒绝。
+ * <p>
+ * 需注册在{@link io.github.cheivin.auth.authentication.AuthenticationManager}之后；只验证开启了
+ * {@link io.github.cheivin.auth.annotation.AuthPoint#route()}的权限点。此阶段尚未绑定方法参数，
+ * {@link CheckPoint#isArgsBound()}为false，只验证权限名称；通过后在请求中标记，
+ * {@link AuthorizationManager}不再重复验证权限名称，只验证权限规则。
+ */
+@Slf4j
+public class RouteAuthorizationFilter extends OncePerRequestFilter implements ApplicationListener<ContextRefreshedEvent> {
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final AuthorizationGranter granter;
+    private final AuthorizationErrorHandler errorHandler;
+    private final AuthMetrics metrics;
+    private final AuthTracer tracer;
+
+    private volatile RouteAuthorizationTable table = RouteAuthorizationTable.EMPTY;
+    private volatile List<RequestMappingHandlerMapping> handlerMappings = new ArrayList<>();
+
+    private RouteAuthorizationFilter(AuthorizationGranter granter, AuthorizationErrorHandler errorHandler, AuthMetrics metrics, AuthTracer tracer) {
+        this.granter = granter;
+        this.errorHandler = errorHandler;
+        this.metrics = metrics == null ? AuthMetrics.NOOP : metrics;
+        this.tracer = tracer == null ? AuthTracer.NOOP : tracer;
+    }
+
+    public static Builder builder(AuthorizationGranter granter) {
+        return new Builder(granter);
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        ApplicationContext context = event.getApplicationContext();
+        List<RequestMappingHandlerMapping> mappings = new ArrayList<>(context.getBeansOfType(RequestMappingHandlerMapping.class).values());
+        if (mappings.isEmpty()) {
+            return;
+        }
+        List<HandlerMethod> handlerMethods = new ArrayList<>();
+        for (RequestMappingHandlerMapping mapping : mappings) {
+            handlerMethods.addAll(mapping.getHandlerMethods().values());
+        }
+        this.handlerMappings = mappings;
+        this.table = RouteAuthorizationTable.build(handlerMethods);
+        log.debug("Route authorization table built with {} handler methods", table.size());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        RouteAuthorizationTable table = this.table;
+        if (table.isEmpty() || CorsUtils.isPreFlightRequest(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        HandlerMethod handlerMethod = lookupHandlerMethod(request);
+        AuthorizationPoint point = handlerMethod == null ? null : table.get(handlerMethod.getMethod());
+        if (point == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        long start = metrics.start();
+        long mark = tracer.now();
+        CheckPoint checkPoint = new CheckPoint(
+                handlerMethod.getMethod().getDeclaringClass(),
+                handlerMethod.getMethod(),
+                NO_ARGS,
+                UserDetailsHolder.currentUser().orElse(null),
+                false
+        );
+        // 授权器抛出异常时同样记录耗时
+        Outcome outcome = Outcome.ERROR;
+        boolean authorized;
+        try {
+            authorized = point.authorizePrivilege(granter, checkPoint);
+            outcome = authorized ? Outcome.OK : Outcome.UNAUTHORIZED;
+        } finally {
+            tracer.stage(AuthTracer.Stage.AUTHORIZATION, mark);
+            metrics.record(Stage.AUTHORIZATION, outcome, start);
+        }
+        if (!authorized) {
+            errorHandler.onUnauthorized(request, response, new UnauthorizedException(point.getNamespace(), point.getPrivilege()));
+            return;
+        }
+        request.setAttribute(RouteAuthorizations.AUTHORIZED_ATTRIBUTE, handlerMethod.getMethod());
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * 查找请求对应的处理方法，查找过程写入的请求属性不会保留到分发阶段
+     */
+    private HandlerMethod lookupHandlerMethod(HttpServletRequest request) {
+        HttpServletRequest lookupRequest = new AttributeIsolatingRequestWrapper(request);
+        for (RequestMappingHandlerMapping mapping : handlerMappings) {
+            try {
+                if (mapping.usesPathPatterns()) {
+                    ServletRequestPathUtils.parseAndCache(lookupRequest);
+                }
+                HandlerExecutionChain chain = mapping.getHandler(lookupRequest);
+                if (chain != null && chain.getHandler() instanceof HandlerMethod) {
+                    return (HandlerMethod) chain.getHandler();
+                }
+            } catch (Exception e) {
+                // 方法不匹配等情况交由DispatcherServlet处理
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 请求属性的写入只保存在包装对象内
+     */
+    private static class AttributeIsolatingRequestWrapper extends HttpServletRequestWrapper {
+        private final Map<String, Object> attributes = new HashMap<>();
+
+        AttributeIsolatingRequestWrapper(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            if (attributes.containsKey(name)) {
+                return attributes.get(name);
+            }
+            return super.getAttribute(name);
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            attributes.put(name, value);
+        }
+
+        @Override
+        public void removeAttribute(String name) {
+            attributes.put(name, null);
+        }
+    }
+
+    public static class Builder {
+        private final AuthorizationGranter granter;
+        private AuthMetrics metrics = AuthMetrics.NOOP;
+        private AuthTracer tracer = AuthTracer.NOOP;
+        private AuthorizationErrorHandler errorHandler = (request, response, e) -> {
+            byte[] body = ("{\"status\":403,\"error\":\"Forbidden\",\"message\":\"" + e.getMessage() + "\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+            response.setStatus(HttpStatus.FORBIDDEN.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setContentLength(body.length);
+            response.getOutputStream().write(body);
+        };
+
+        public Builder(AuthorizationGranter granter) {
+            this.granter = granter;
+        }
+
+        public Builder setErrorHandler(AuthorizationErrorHandler errorHandler) {
+            this.errorHandler = errorHandler;
+            return this;
+        }
+
+        public Builder setMetrics(AuthMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public Builder setTracer(AuthTracer tracer) {
+            this.tracer = tracer;
+            return this;
+        }
+
+        public RouteAuthorizationFilter build() {
+            return new RouteAuthorizationFilter(granter, errorHandler, metrics, tracer);
+        }
+    }
+}
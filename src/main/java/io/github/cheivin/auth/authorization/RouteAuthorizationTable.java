@@ -0,0 +1,62 @@
+package io.github.cheivin.auth.authorization;
+
+import org.springframework.web.method.HandlerMethod;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 处理方法权限路由表，启动时由请求映射构建，构建后不可变
+ */
+class RouteAuthorizationTable {
+    static final RouteAuthorizationTable EMPTY = new RouteAuthorizationTable(Collections.emptyMap());
+
+    private final Map<Method, AuthorizationPoint> points;
+
+    private RouteAuthorizationTable(Map<Method, AuthorizationPoint> points) {
+        this.points = points;
+    }
+
+    /**
+     * 构建路由表，只包含开启了{@link io.github.cheivin.auth.annotation.AuthPoint#route()}的权限点
+     * <p>
+     * 同一方法被多个处理类以不同权限点注册时无法仅凭方法区分，不加入路由表，仍由{@link AuthorizationManager}验证
+     *
+     * @param handlerMethods 请求映射的处理方法
+     * @return 路由表
+     */
+    static RouteAuthorizationTable build(Iterable<HandlerMethod> handlerMethods) {
+        Map<Method, AuthorizationPoint> points = new HashMap<>();
+        Set<Method> ambiguous = new HashSet<>();
+        for (HandlerMethod handlerMethod : handlerMethods) {
+            Method method = handlerMethod.getMethod();
+            AuthorizationPoint point = AuthorizationPoint.resolve(handlerMethod.getBeanType(), method);
+            if (point == null) {
+                continue;
+            }
+            AuthorizationPoint previous = points.putIfAbsent(method, point);
+            if (previous != null && !previous.equals(point)) {
+                ambiguous.add(method);
+            }
+        }
+        points.keySet().removeAll(ambiguous);
+        points.values().removeIf(point -> point.isIgnore() || !point.isRoute() || !point.hasPrivilege());
+        return new RouteAuthorizationTable(Map.copyOf(points));
+    }
+
+    AuthorizationPoint get(Method method) {
+        return points.get(method);
+    }
+
+    boolean isEmpty() {
+        return points.isEmpty();
+    }
+
+    int size() {
+        return points.size();
+    }
+}
@@ -0,0 +1,40 @@
+package io.github.cheivin.auth.authorization;
+
+import org.springframework.util.ClassUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.lang.reflect.Method;
+
+/**
+ * 路由阶段的授权标记
+ * <p>
+ * {@link RouteAuthorizationFilter}授权通过后在请求属性中记录处理方法，{@link AuthorizationManager}据此跳过重复验证。
+ * 非web环境不加载请求相关的类
+ */
+final class RouteAuthorizations {
+    static final String AUTHORIZED_ATTRIBUTE = RouteAuthorizations.class.getName() + ".AUTHORIZED";
+
+    private static final boolean WEB_PRESENT = ClassUtils.isPresent(
+            "org.springframework.web.context.request.RequestContextHolder", RouteAuthorizations.class.getClassLoader());
+
+    private RouteAuthorizations() {
+    }
+
+    /**
+     * 当前请求是否已在路由阶段授权该方法
+     *
+     * @param method 方法
+     * @return 是否已授权
+     */
+    static boolean isAuthorized(Method method) {
+        return WEB_PRESENT && method.equals(RequestAttributesAccessor.authorizedMethod());
+    }
+
+    private static class RequestAttributesAccessor {
+        static Object authorizedMethod() {
+            RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+            return attributes == null ? null : attributes.getAttribute(AUTHORIZED_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+}
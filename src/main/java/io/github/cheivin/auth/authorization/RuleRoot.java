@@ -0,0 +1,66 @@
+package io.github.cheivin.auth.authorization;
+
+import io.github.cheivin.auth.user.UserDetails;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 权限规则表达式根对象
+ */
+public class RuleRoot {
+    private static final String[] NO_ROLES = new String[0];
+
+    private final CheckPoint checkPoint;
+
+    RuleRoot(CheckPoint checkPoint) {
+        this.checkPoint = checkPoint;
+    }
+
+    /**
+     * 当前用户，未登录时为null
+     */
+    public UserDetails getUser() {
+        return checkPoint.getUserDetails();
+    }
+
+    /**
+     * 当前用户角色
+     */
+    public String[] getRoles() {
+        UserDetails user = checkPoint.getUserDetails();
+        return user == null ? NO_ROLES : user.getRoles();
+    }
+
+    /**
+     * 当前用户属性
+     */
+    public Map<String, String> getAttributes() {
+        UserDetails user = checkPoint.getUserDetails();
+        return user == null ? Collections.emptyMap() : user.getAttributes();
+    }
+
+    /**
+     * 方法参数
+     */
+    public Object[] getArgs() {
+        return checkPoint.getArgs();
+    }
+
+    public boolean hasRole(String role) {
+        return checkPoint.hasRole(role);
+    }
+
+    public boolean hasAnyRole(String... roles) {
+        for (String role : roles) {
+            if (hasRole(role)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String attribute(String key) {
+        return getAttributes().get(key);
+    }
+}
@@ -0,0 +1,238 @@
+package io.github.cheivin.auth.autoconfigure;
+
+import io.github.cheivin.auth.clock.AuthClock;
+import io.github.cheivin.auth.authentication.AuthenticationErrorHandler;
+import io.github.cheivin.auth.authentication.AuthenticationManager;
+import io.github.cheivin.auth.authorization.AuthorizationErrorHandler;
+import io.github.cheivin.auth.authorization.AuthorizationGranter;
+import io.github.cheivin.auth.authorization.AuthorizationManager;
+import io.github.cheivin.auth.authorization.RouteAuthorizationFilter;
+import io.github.cheivin.auth.filter.SlidingSessionRenewer;
+import io.github.cheivin.auth.metrics.AuthMetrics;
+import io.github.cheivin.auth.metrics.MicrometerAuthMetrics;
+import io.github.cheivin.auth.throttle.AuthenticationThrottle;
+import io.github.cheivin.auth.throttle.ThrottleKeyResolver;
+import io.github.cheivin.auth.token.TokenStore;
+import io.github.cheivin.auth.trace.AuthTracer;
+import io.github.cheivin.auth.trace.RingBufferAuthTracer;
+import io.github.cheivin.auth.user.RoleHierarchy;
+import io.github.cheivin.auth.user.UserDetailsHolder;
+import io.github.cheivin.auth.user.UserDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.web.servlet.ConditionalOnMissingFilterBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 认证授权组件自动配置
+ * <p>
+ * 按条件创建各部分，未启用或缺少依赖的部分不会初始化；不做类路径扫描，配置类之间不生成代理。
+ * token管理器由{@link AuthTokenStoreAutoConfiguration}先行注册，认证过滤器据此判断是否启用。
+ */
+@Configuration(proxyBeanMethods = false)
+@AutoConfigureAfter(value = AuthTokenStoreAutoConfiguration.class,
+        name = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
+@EnableConfigurationProperties(AuthProperties.class)
+public class AuthAutoConfiguration {
+
+    static AuthMetrics metrics(ObjectProvider<AuthMetrics> metrics) {
+        return metrics.getIfAvailable(() -> AuthMetrics.NOOP);
+    }
+
+    private static AuthTracer tracer(ObjectProvider<AuthTracer> tracer) {
+        return tracer.getIfAvailable(() -> AuthTracer.NOOP);
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(MeterRegistry.class)
+    static class MetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnBean(MeterRegistry.class)
+        public AuthMetrics authMetrics(MeterRegistry registry) {
+            return new MicrometerAuthMetrics(registry);
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(prefix = "auth.trace", name = "enabled", havingValue = "true")
+    static class TraceConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public AuthTracer authTracer(AuthProperties properties) {
+            return new RingBufferAuthTracer(properties.getTrace().getCapacity());
+        }
+    }
+
+    /**
+     * 将容器中的角色继承关系安装到{@link UserDetailsHolder}，包括用户自定义的bean；
+     * 在所有单例创建后执行，不受延迟初始化影响
+     */
+    @Bean
+    public RoleHierarchyInstaller authRoleHierarchyInstaller(ObjectProvider<RoleHierarchy> roleHierarchy) {
+        return new RoleHierarchyInstaller(roleHierarchy);
+    }
+
+    static class RoleHierarchyInstaller implements SmartInitializingSingleton, DisposableBean {
+        private final ObjectProvider<RoleHierarchy> roleHierarchy;
+        private RoleHierarchy installed;
+
+        RoleHierarchyInstaller(ObjectProvider<RoleHierarchy> roleHierarchy) {
+            this.roleHierarchy = roleHierarchy;
+        }
+
+        @Override
+        public void afterSingletonsInstantiated() {
+            installed = roleHierarchy.getIfUnique();
+            if (installed != null) {
+                UserDetailsHolder.setRoleHierarchy(installed);
+            }
+        }
+
+        @Override
+        public void destroy() {
+            if (installed != null && UserDetailsHolder.getRoleHierarchy() == installed) {
+                UserDetailsHolder.setRoleHierarchy(null);
+            }
+            installed = null;
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnExpression("'${auth.role-hierarchy.definition:}' != '' or '${auth.role-hierarchy.file:}' != ''")
+    static class RoleHierarchyConfiguration {
+
+        @Bean(destroyMethod = "close")
+        @ConditionalOnMissingBean
+        public RoleHierarchy roleHierarchy(AuthProperties properties) throws IOException {
+            AuthProperties.RoleHierarchy config = properties.getRoleHierarchy();
+            RoleHierarchy hierarchy;
+            if (StringUtils.hasText(config.getFile())) {
+                hierarchy = RoleHierarchy.fromFile(Path.of(config.getFile()));
+                if (config.getReloadInterval() != null) {
+                    hierarchy.startWatching(config.getReloadInterval());
+                }
+            } else {
+                hierarchy = RoleHierarchy.of(config.getDefinition());
+            }
+            return hierarchy;
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @ConditionalOnProperty(prefix = "auth.authentication", name = "enabled", havingValue = "true", matchIfMissing = true)
+    @ConditionalOnBean({UserDetailsService.class, TokenStore.class})
+    static class AuthenticationConfiguration {
+
+        @Bean
+        @ConditionalOnMissingFilterBean(AuthenticationManager.class)
+        public FilterRegistrationBean<AuthenticationManager> authenticationManager(UserDetailsService userDetailsService,
+                                                                                   TokenStore tokenStore,
+                                                                                   AuthProperties properties,
+                                                                                   ObjectProvider<AuthenticationErrorHandler> errorHandler,
+                                                                                   ObjectProvider<AuthMetrics> metrics,
+                                                                                   ObjectProvider<AuthTracer> tracer,
+                                                                                   ObjectProvider<AuthClock> clock,
+                                                                                   ObjectProvider<TaskExecutor> taskExecutor) {
+            AuthProperties.Authentication config = properties.getAuthentication();
+            AuthenticationManager.Builder builder = AuthenticationManager.builder(userDetailsService, tokenStore)
+                    .setPatterns(config.getPatterns())
+                    .setExcludePathPatterns(config.getExcludePatterns())
+                    .setMetrics(metrics(metrics))
+                    .setTracer(tracer(tracer));
+            errorHandler.ifAvailable(builder::setErrorHandler);
+            AuthProperties.Throttle throttle = config.getThrottle();
+            if (throttle.isEnabled()) {
+                builder.setThrottle(AuthenticationThrottle.builder()
+                        .setCapacity(throttle.getCapacity())
+                        .setRefillPerSecond(throttle.getRefillPerSecond())
+                        .setStripes(throttle.getStripes())
+                        .setClock(clock.getIfAvailable(() -> AuthClock.SYSTEM))
+                        .setKeyResolver(throttle.getKey() == AuthProperties.ThrottleKey.TOKEN_PREFIX
+                                ? ThrottleKeyResolver.tokenPrefix(throttle.getTokenPrefixLength())
+                                : ThrottleKeyResolver.remoteAddress())
+                        .build());
+            }
+            AuthProperties.SlidingSession slidingSession = config.getSlidingSession();
+            if (slidingSession.isEnabled()) {
+                builder.setSlidingSession(SlidingSessionRenewer.builder(tokenStore)
+                        .setThreshold(slidingSession.getThreshold())
+                        .setInterval(slidingSession.getInterval())
+                        .setMaxEntries(slidingSession.getMaxEntries())
+                        .setTokenHeader(slidingSession.getTokenHeader())
+                        .setExpiresHeader(slidingSession.getExpiresHeader())
+                        .setExecutor(slidingSession.isAsync() ? taskExecutor.getIfUnique() : null)
+                        .build());
+            }
+            FilterRegistrationBean<AuthenticationManager> registration = new FilterRegistrationBean<>(builder.build());
+            registration.setOrder(config.getOrder());
+            return registration;
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "org.aspectj.lang.annotation.Aspect")
+    @ConditionalOnProperty(prefix = "auth.authorization", name = "enabled", havingValue = "true", matchIfMissing = true)
+    @ConditionalOnBean(AuthorizationGranter.class)
+    static class AuthorizationConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public AuthorizationManager authorizationManager(AuthorizationGranter granter,
+                                                         ObjectProvider<AuthMetrics> metrics,
+                                                         ObjectProvider<AuthTracer> tracer) {
+            return new AuthorizationManager(granter, metrics(metrics), tracer(tracer));
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @ConditionalOnClass(name = "org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping")
+    @ConditionalOnProperty(prefix = "auth.authorization.route", name = "enabled", havingValue = "true")
+    @ConditionalOnBean(AuthorizationGranter.class)
+    static class RouteAuthorizationConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public RouteAuthorizationFilter routeAuthorizationFilter(AuthorizationGranter granter,
+                                                                 ObjectProvider<AuthorizationErrorHandler> errorHandler,
+                                                                 ObjectProvider<AuthMetrics> metrics,
+                                                                 ObjectProvider<AuthTracer> tracer) {
+            RouteAuthorizationFilter.Builder builder = RouteAuthorizationFilter.builder(granter)
+                    .setMetrics(metrics(metrics))
+                    .setTracer(tracer(tracer));
+            errorHandler.ifAvailable(builder::setErrorHandler);
+            return builder.build();
+        }
+
+        /**
+         * 过滤器需作为容器中的bean接收刷新事件构建路由表，注册信息只用于指定顺序
+         */
+        @Bean
+        public FilterRegistrationBean<RouteAuthorizationFilter> routeAuthorizationFilterRegistration(RouteAuthorizationFilter filter, AuthProperties properties) {
+            FilterRegistrationBean<RouteAuthorizationFilter> registration = new FilterRegistrationBean<>(filter);
+            registration.setOrder(properties.getAuthorization().getRoute().getOrder());
+            return registration;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package io.github.cheivin.auth.autoconfigure;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 认证授权组件配置
+ */
+@Data
+@ConfigurationProperties(prefix = "auth")
+public class AuthProperties {
+    private Token token = new Token();
+    private Tenant tenant = new Tenant();
+    private Authentication authentication = new Authentication();
+    private Authorization authorization = new Authorization();
+    private RoleHierarchy roleHierarchy = new RoleHierarchy();
+    private Trace trace = new Trace();
+
+    /**
+     * token配置
+     */
+    @Data
+    public static class Token {
+        /**
+         * 加密密钥，未设置时不创建token管理器
+         */
+        private String secret;
+        /**
+         * accessToken过期时间，单位秒
+         */
+        private long accessExpire = 86400;
+        /**
+         * refreshToken过期时间，单位秒
+         */
+        private long refreshExpire = 604800;
+        /**
+         * 严格模式
+         */
+        private boolean strict = true;
+        /**
+         * 签发者
+         */
+        private String issuer;
+    }
+
+    /**
+     * 多租户配置，存在{@link io.github.cheivin.auth.token.TenantTokenStoreFactory}时生效
+     */
+    @Data
+    public static class Tenant {
+        /**
+         * 用户属性中的租户字段
+         */
+        private String attribute = "tenant";
+        /**
+         * 最多缓存的租户数
+         */
+        private int maxTenants = 1000;
+        /**
+         * 租户空闲时间
+         */
+        private Duration idleTimeout = Duration.ofMinutes(30);
+        /**
+         * 未知租户的记录时间，期间不再查询租户配置
+         */
+        private Duration unknownTenantTtl = Duration.ofMinutes(1);
+        /**
+         * 最多记录的未知租户数
+         */
+        private int maxUnknownTenants = 1000;
+        /**
+         * 每秒由token触发的租户查询次数，不大于0时不限制
+         */
+        private int maxLookupsPerSecond = 20;
+        /**
+         * 租户白名单，为空时不限制
+         */
+        private Set<String> allowedTenants = new LinkedHashSet<>();
+    }
+
+    /**
+     * 身份认证配置
+     */
+    @Data
+    public static class Authentication {
+        private boolean enabled = true;
+        /**
+         * 过滤器顺序
+         */
+        private int order = 0;
+        private List<String> patterns = new ArrayList<>();
+        private List<String> excludePatterns = new ArrayList<>();
+        private Throttle throttle = new Throttle();
+        private SlidingSession slidingSession = new SlidingSession();
+    }
+
+    /**
+     * 认证失败限流配置
+     */
+    @Data
+    public static class Throttle {
+        private boolean enabled = false;
+        /**
+         * 允许连续失败次数
+         */
+        private int capacity = 20;
+        /**
+         * 每秒恢复次数
+         */
+        private double refillPerSecond = 1;
+        /**
+         * 分段数
+         */
+        private int stripes = 65536;
+        /**
+         * 客户端标识
+         */
+        private ThrottleKey key = ThrottleKey.REMOTE_ADDRESS;
+        /**
+         * 按token限流时参与计算的字符数，从JWT载荷开始计算
+         */
+        private int tokenPrefixLength = 64;
+    }
+
+    public enum ThrottleKey {
+        /**
+         * 按客户端IP
+         */
+        REMOTE_ADDRESS,
+        /**
+         * 按token内容，随机构造的token每次落到新的桶，不能防御暴力尝试
+         */
+        TOKEN_PREFIX
+    }
+
+    /**
+     * 滑动会话配置
+     */
+    @Data
+    public static class SlidingSession {
+        private boolean enabled = false;
+        /**
+         * 剩余时间低于该值时续期，单位秒
+         */
+        private long threshold = 3600;
+        /**
+         * 同一用户续期间隔，单位秒
+         */
+        private long interval = 60;
+        /**
+         * 最多记录的用户数
+         */
+        private int maxEntries = 10000;
+        /**
+         * 是否在后台签发，使用容器中唯一的{@link org.springframework.core.task.TaskExecutor}，不存在时在请求线程签发
+         */
+        private boolean async = true;
+        private String tokenHeader = "X-Access-Token";
+        private String expiresHeader = "X-Access-Token-Expires-In";
+    }
+
+    /**
+     * 权限验证配置，存在{@link io.github.cheivin.auth.authorization.AuthorizationGranter}时生效
+     */
+    @Data
+    public static class Authorization {
+        /**
+         * 启用方法切面验证
+         */
+        private boolean enabled = true;
+        private Route route = new Route();
+    }
+
+    /**
+     * 路由级权限验证配置
+     */
+    @Data
+    public static class Route {
+        private boolean enabled = false;
+        /**
+         * 过滤器顺序，需在身份认证之后
+         */
+        private int order = 1;
+    }
+
+    /**
+     * 角色继承配置
+     */
+    @Data
+    public static class RoleHierarchy {
+        /**
+         * 继承关系定义，如ADMIN > MANAGER > NORMAL
+         */
+        private String definition;
+        /**
+         * 继承关系定义文件，优先于definition
+         */
+        private String file;
+        /**
+         * 文件检查间隔，为空时不热更新
+         */
+        private Duration reloadInterval;
+    }
+
+    /**
+     * 阶段追踪配置
+     */
+    @Data
+    public static class Trace {
+        private boolean enabled = false;
+        /**
+         * 环形缓冲区大小
+         */
+        private int capacity = 1024;
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.cheivin.auth.autoconfigure;
+
+import io.github.cheivin.auth.clock.AuthClock;
+import io.github.cheivin.auth.metrics.AuthMetrics;
+import io.github.cheivin.auth.token.JwtTokenStore;
+import io.github.cheivin.auth.token.TenantRoutingTokenStore;
+import io.github.cheivin.auth.token.TenantTokenStoreFactory;
+import io.github.cheivin.auth.token.TokenStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static io.github.cheivin.auth.autoconfigure.AuthAutoConfiguration.metrics;
+
+/**
+ * token管理器自动配置
+ * <p>
+ * 单独注册并排在{@link AuthAutoConfiguration}之前，保证认证过滤器的条件判断能看到这里创建的token管理器
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(AuthProperties.class)
+public class AuthTokenStoreAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean(TokenStore.class)
+    @ConditionalOnBean(TenantTokenStoreFactory.class)
+    public TenantRoutingTokenStore tenantRoutingTokenStore(TenantTokenStoreFactory factory, AuthProperties properties, ObjectProvider<AuthMetrics> metrics, ObjectProvider<AuthClock> clock) {
+        AuthProperties.Tenant tenant = properties.getTenant();
+        return TenantRoutingTokenStore.builder(factory)
+                .setTenantAttribute(tenant.getAttribute())
+                .setMaxTenants(tenant.getMaxTenants())
+                .setIdleTimeout(tenant.getIdleTimeout())
+                .setUnknownTenantTtl(tenant.getUnknownTenantTtl())
+                .setMaxUnknownTenants(tenant.getMaxUnknownTenants())
+                .setMaxLookupsPerSecond(tenant.getMaxLookupsPerSecond())
+                .setAllowedTenants(tenant.getAllowedTenants())
+                .setMetrics(metrics(metrics))
+                .setClock(clock.getIfAvailable(() -> AuthClock.SYSTEM))
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(TokenStore.class)
+    @ConditionalOnProperty(prefix = "auth.token", name = "secret")
+    public JwtTokenStore jwtTokenStore(AuthProperties properties, ObjectProvider<AuthMetrics> metrics, ObjectProvider<AuthClock> clock) {
+        AuthProperties.Token token = properties.getToken();
+        return JwtTokenStore.builder(token.getSecret())
+                .setAccessExpire(token.getAccessExpire())
+                .setRefreshExpire(token.getRefreshExpire())
+                .setStrict(token.isStrict())
+                .setIssuer(token.getIssuer())
+                .setMetrics(metrics(metrics))
+                .setClock(clock.getIfAvailable(() -> AuthClock.SYSTEM))
+                .build();
+    }
+}
@@ -0,0 +1,27 @@
+package io.github.cheivin.auth.clock;
+
+/**
+ * 时间源，token签发及过期计算使用
+ */
+public interface AuthClock {
+    /**
+     * 系统时间
+     */
+    AuthClock SYSTEM = System::currentTimeMillis;
+
+    /**
+     * 当前时间
+     *
+     * @return 毫秒时间戳
+     */
+    long millis();
+
+    /**
+     * 当前时间
+     *
+     * @return 秒时间戳
+     */
+    default long seconds() {
+        return millis() / 1000;
+    }
+}
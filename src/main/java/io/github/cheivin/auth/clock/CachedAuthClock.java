@@ -0,0 +1,41 @@
+package io.github.cheivin.auth.clock;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存时间源
+ * <p>
+ * 由后台线程按固定精度刷新时间，读取只是一次volatile读；精度默认1秒，足够token以秒为单位的过期计算
+ */
+public class CachedAuthClock implements AuthClock, Closeable {
+    private final ScheduledExecutorService ticker;
+    private volatile long millis = System.currentTimeMillis();
+
+    public CachedAuthClock() {
+        this(Duration.ofSeconds(1));
+    }
+
+    public CachedAuthClock(Duration resolution) {
+        long period = Math.max(1, resolution.toMillis());
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "auth-clock-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(() -> millis = System.currentTimeMillis(), period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long millis() {
+        return millis;
+    }
+
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+    }
+}
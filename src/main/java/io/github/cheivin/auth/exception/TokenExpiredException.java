@@ -3,18 +3,18 @@ package io.github.cheivin.auth.exception;
 import java.util.Date;
 
 /**
- * token过期
+ * token过期，属于预期内的拒绝，不记录异常堆栈
  */
 public class TokenExpiredException extends TokenInvalidException {
     private final Date expiredAt;
 
     public TokenExpiredException(String token, Date expiredAt) {
-        super(token);
+        super(token, "token expired", null, false);
         this.expiredAt = expiredAt;
     }
 
     public TokenExpiredException(String token, Date expiredAt, Throwable cause) {
-        super(token, cause);
+        super(token, "token expired", cause, false);
         this.expiredAt = expiredAt;
     }
 
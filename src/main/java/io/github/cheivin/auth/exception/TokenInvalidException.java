@@ -2,21 +2,34 @@ package io.github.cheivin.auth.exception;
 
 /**
  * token无效
+ * <p>
+ * 签名错误、格式错误等保留异常堆栈便于排查；token缺失、过期等预期内的高频拒绝由子类关闭堆栈，
+ * 避免大量此类请求时填充堆栈的开销
  */
 public class TokenInvalidException extends Exception {
     private final String token;
 
     public TokenInvalidException(String token) {
-        this.token = token;
+        this(token, null, null);
     }
 
     public TokenInvalidException(String token, String message) {
-        super(message);
-        this.token = token;
+        this(token, message, null);
     }
 
     public TokenInvalidException(String token, Throwable cause) {
-        super(cause);
+        this(token, cause == null ? null : cause.toString(), cause);
+    }
+
+    public TokenInvalidException(String token, String message, Throwable cause) {
+        this(token, message, cause, true);
+    }
+
+    /**
+     * @param writableStackTrace 是否记录异常堆栈
+     */
+    protected TokenInvalidException(String token, String message, Throwable cause, boolean writableStackTrace) {
+        super(message, cause, writableStackTrace, writableStackTrace);
         this.token = token;
     }
 
@@ -1,11 +1,16 @@
 package io.github.cheivin.auth.exception;
 
 /**
- * token不存在
+ * token不存在，属于预期内的拒绝，不记录异常堆栈
  */
 public class TokenNotPresentException extends TokenInvalidException {
+    /**
+     * 共享实例，异常不含堆栈及可变状态，可在线程间复用
+     */
+    public static final TokenNotPresentException INSTANCE = new TokenNotPresentException();
+
     public TokenNotPresentException() {
-        super("", "token not present");
+        super("", "token not present", null, false);
     }
 
 }
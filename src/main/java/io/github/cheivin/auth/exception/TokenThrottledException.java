@@ -0,0 +1,15 @@
+package io.github.cheivin.auth.exception;
+
+/**
+ * 认证失败次数过多，已被限流
+ */
+public class TokenThrottledException extends TokenInvalidException {
+    /**
+     * 共享实例，异常不含堆栈及可变状态，可在线程间复用
+     */
+    public static final TokenThrottledException INSTANCE = new TokenThrottledException();
+
+    public TokenThrottledException() {
+        super("", "too many failed authentication attempts", null, false);
+    }
+}
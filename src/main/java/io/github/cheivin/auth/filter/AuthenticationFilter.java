@@ -4,7 +4,13 @@ import io.github.cheivin.auth.authentication.AuthenticationErrorHandler;
 import io.github.cheivin.auth.exception.TokenExpiredException;
 import io.github.cheivin.auth.exception.TokenInvalidException;
 import io.github.cheivin.auth.exception.TokenNotPresentException;
+import io.github.cheivin.auth.exception.TokenThrottledException;
+import io.github.cheivin.auth.metrics.AuthMetrics;
+import io.github.cheivin.auth.metrics.AuthMetrics.Outcome;
+import io.github.cheivin.auth.metrics.AuthMetrics.Stage;
+import io.github.cheivin.auth.throttle.AuthenticationThrottle;
 import io.github.cheivin.auth.token.TokenStore;
+import io.github.cheivin.auth.trace.AuthTracer;
 import io.github.cheivin.auth.user.UserDetails;
 import io.github.cheivin.auth.user.UserDetailsHolder;
 import io.github.cheivin.auth.user.UserDetailsService;
@@ -34,6 +40,17 @@ public abstract class AuthenticationFilter implements Filter {
     private final AntPathMatcher matcher = new AntPathMatcher();
     private final UrlPathHelper pathHelper = new UrlPathHelper();
 
+    private AuthMetrics metrics = AuthMetrics.NOOP;
+    private AuthTracer tracer = AuthTracer.NOOP;
+    /**
+     * 认证失败限流，为空时不限流
+     */
+    private AuthenticationThrottle throttle;
+    /**
+     * 滑动会话续期，为空时不续期
+     */
+    private SlidingSessionRenewer renewer;
+
     public AuthenticationFilter(UserDetailsService userDetailsService, TokenStore tokenStore, AuthenticationErrorHandler errorHandler) {
         this.userDetailsService = userDetailsService;
         this.tokenStore = tokenStore;
@@ -56,6 +73,22 @@ public abstract class AuthenticationFilter implements Filter {
         addExcludePathPatterns(Arrays.asList(excludePathPatterns));
     }
 
+    public void setMetrics(AuthMetrics metrics) {
+        this.metrics = metrics == null ? AuthMetrics.NOOP : metrics;
+    }
+
+    public void setTracer(AuthTracer tracer) {
+        this.tracer = tracer == null ? AuthTracer.NOOP : tracer;
+    }
+
+    public void setThrottle(AuthenticationThrottle throttle) {
+        this.throttle = throttle;
+    }
+
+    public void setRenewer(SlidingSessionRenewer renewer) {
+        this.renewer = renewer;
+    }
+
 
     public abstract Optional<String> getToken(HttpServletRequest request);
 
@@ -83,38 +116,84 @@ public abstract class AuthenticationFilter implements Filter {
     public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain) throws IOException, ServletException {
         HttpServletRequest request = (HttpServletRequest) servletRequest;
         HttpServletResponse response = (HttpServletResponse) servletResponse;
+        long mark = tracer.now();
         // 判断路径
         if (!isIncludePath(request) || isExcludePath(request)) {
             chain.doFilter(request, response);
             return;
         }
+        tracer.begin(request.getRequestURI(), mark);
+        try {
+            mark = tracer.stage(AuthTracer.Stage.PATH_MATCH, mark);
+            authenticate(request, response, chain, mark);
+        } finally {
+            tracer.end();
+        }
+    }
+
+    private void authenticate(HttpServletRequest request, HttpServletResponse response, FilterChain chain, long mark) throws IOException, ServletException {
+        long start = metrics.start();
         // 获取token
         Optional<String> tokenOptional = getToken(request);
+        mark = tracer.stage(AuthTracer.Stage.TOKEN_EXTRACT, mark);
         if (tokenOptional.isEmpty()) {
-            errorHandler.onTokenNotPresent(request, response, new TokenNotPresentException());
+            metrics.record(Stage.AUTHENTICATION, Outcome.NOT_PRESENT, start);
+            errorHandler.onTokenNotPresent(request, response, TokenNotPresentException.INSTANCE);
             return;
         }
+        // 失败次数过多的客户端直接拒绝，不再验证签名
+        int throttleKey = 0;
+        if (throttle != null) {
+            throttleKey = throttle.resolveKey(request, tokenOptional.get());
+            if (throttle.isThrottled(throttleKey)) {
+                tracer.stage(AuthTracer.Stage.TOKEN_VERIFY, mark);
+                metrics.record(Stage.AUTHENTICATION, Outcome.THROTTLED, start);
+                errorHandler.onTokenThrottled(request, response, TokenThrottledException.INSTANCE);
+                return;
+            }
+        }
         // 验证token信息
+        Optional<Long> remaining;
         try {
-            tokenStore.verifyAccessToken(tokenOptional.get());
+            remaining = tokenStore.verifyAccessToken(tokenOptional.get());
         } catch (TokenExpiredException e) {
+            // 签名有效的过期token是正常流量，不计入限流，避免同一出口IP下的正常用户被限流
+            tracer.stage(AuthTracer.Stage.TOKEN_VERIFY, mark);
+            metrics.record(Stage.AUTHENTICATION, Outcome.EXPIRED, start);
             errorHandler.onTokenExpired(request, response, e);
             return;
         } catch (TokenInvalidException e) {
+            onVerifyFailure(throttleKey);
+            tracer.stage(AuthTracer.Stage.TOKEN_VERIFY, mark);
+            metrics.record(Stage.AUTHENTICATION, Outcome.of(e), start);
             errorHandler.onTokenInvalid(request, response, e);
             return;
         }
+        mark = tracer.stage(AuthTracer.Stage.TOKEN_VERIFY, mark);
         // 获取用户信息
+        long loadStart = metrics.start();
         Optional<UserDetails> userDetailsOptional = userDetailsService.loadUserDetailsByToken(tokenOptional.get());
+        tracer.stage(AuthTracer.Stage.USER_LOAD, mark);
+        metrics.record(Stage.USER_LOAD, userDetailsOptional.isPresent() ? Outcome.OK : Outcome.NOT_PRESENT, loadStart);
         if (userDetailsOptional.isPresent()) {
             UserDetails userDetails = userDetailsOptional.get();
             UserDetailsHolder.init(userDetails);
             request = new HttpServletRequestUserDetailsWrapper(request, userDetails);
+            if (renewer != null && remaining.isPresent()) {
+                renewer.renew(response, userDetails, remaining.get());
+            }
         }
+        metrics.record(Stage.AUTHENTICATION, Outcome.OK, start);
         try {
             chain.doFilter(request, response);
         } finally {
             UserDetailsHolder.invalid();
         }
     }
+
+    private void onVerifyFailure(int throttleKey) {
+        if (throttle != null) {
+            throttle.onFailure(throttleKey);
+        }
+    }
 }
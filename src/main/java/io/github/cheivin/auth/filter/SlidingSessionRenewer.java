@@ -0,0 +1,235 @@
+package io.github.cheivin.auth.filter;
+
+import io.github.cheivin.auth.token.Token;
+import io.github.cheivin.auth.token.TokenStore;
+import io.github.cheivin.auth.user.ImmutableUserDetails;
+import io.github.cheivin.auth.user.UserDetails;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * 滑动会话续期
+ * <p>
+ * 访问token剩余时间低于阈值时签发新的访问token，通过响应头返回，客户端替换后无需再调用刷新接口。
+ * 每个用户在续期间隔内只签发一次，间隔内的其他请求复用已签发的token。
+ * 用户按uid、角色及属性整体区分，多租户下不同租户的同名uid各自签发，不会拿到别人的token；
+ * 设置了执行器时在后台签发，新token在该用户的下一个请求中返回。
+ * 跨域访问时需将响应头加入{@code Access-Control-Expose-Headers}。
+ */
+@Slf4j
+public class SlidingSessionRenewer {
+    /**
+     * 默认续期阈值，1小时
+     */
+    protected static final long DEFAULT_THRESHOLD = 3600;
+    /**
+     * 默认同一用户续期间隔，1分钟
+     */
+    protected static final long DEFAULT_INTERVAL = 60;
+    /**
+     * 默认最多记录的用户数
+     */
+    protected static final int DEFAULT_MAX_ENTRIES = 10000;
+    protected static final String DEFAULT_TOKEN_HEADER = "X-Access-Token";
+    protected static final String DEFAULT_EXPIRES_HEADER = "X-Access-Token-Expires-In";
+
+    private final TokenStore tokenStore;
+    private final long threshold;
+    private final long intervalMillis;
+    private final int maxEntries;
+    private final String tokenHeader;
+    private final String expiresHeader;
+    private final Executor executor;
+
+    private final ConcurrentHashMap<Principal, Renewal> renewals = new ConcurrentHashMap<>();
+    private volatile long lastSweep;
+
+    private SlidingSessionRenewer(TokenStore tokenStore, long threshold, long interval, int maxEntries, String tokenHeader, String expiresHeader, Executor executor) {
+        this.tokenStore = tokenStore;
+        this.threshold = threshold;
+        this.intervalMillis = interval * 1000;
+        this.maxEntries = maxEntries;
+        this.tokenHeader = tokenHeader;
+        this.expiresHeader = expiresHeader;
+        this.executor = executor;
+    }
+
+    public static Builder builder(TokenStore tokenStore) {
+        return new Builder(tokenStore);
+    }
+
+    /**
+     * 按需续期
+     *
+     * @param response    响应
+     * @param userDetails 当前用户
+     * @param remaining   访问token剩余时间，单位秒
+     */
+    public void renew(HttpServletResponse response, UserDetails userDetails, long remaining) {
+        String uid = userDetails.getUid();
+        if (remaining > threshold || uid == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Principal principal = new Principal(userDetails);
+        Renewal renewal = renewals.get(principal);
+        if (renewal != null && now - renewal.issuedAt < intervalMillis) {
+            writeHeaders(response, renewal, now);
+            return;
+        }
+        if (renewals.size() >= maxEntries && !sweep(now)) {
+            return;
+        }
+        // 只有抢到签发权的请求签发，并发请求不重复签发
+        Renewal claimed = new Renewal(now);
+        boolean acquired = renewal == null ? renewals.putIfAbsent(principal, claimed) == null : renewals.replace(principal, renewal, claimed);
+        if (!acquired) {
+            return;
+        }
+        // 不携带原始token，避免其被写入新token
+        UserDetails subject = ImmutableUserDetails.copyOf(userDetails);
+        if (executor == null) {
+            claimed.token = tokenStore.createAccessToken(subject);
+            writeHeaders(response, claimed, now);
+        } else {
+            executor.execute(() -> {
+                try {
+                    claimed.token = tokenStore.createAccessToken(subject);
+                } catch (RuntimeException e) {
+                    log.warn("Sliding session renewal for user {} failed", uid, e);
+                }
+            });
+        }
+    }
+
+    private void writeHeaders(HttpServletResponse response, Renewal renewal, long now) {
+        Token token = renewal.token;
+        if (token == null) {
+            return;
+        }
+        response.setHeader(tokenHeader, token.getToken());
+        response.setHeader(expiresHeader, String.valueOf(token.getExpiresIn() - (now - renewal.issuedAt) / 1000));
+    }
+
+    /**
+     * 清理过期记录，每秒最多一次
+     *
+     * @return 清理后是否有空位
+     */
+    private boolean sweep(long now) {
+        if (now - lastSweep >= 1000) {
+            lastSweep = now;
+            renewals.values().removeIf(renewal -> now - renewal.issuedAt >= intervalMillis);
+        }
+        return renewals.size() < maxEntries;
+    }
+
+    /**
+     * 续期记录的键，签发token所依据的完整身份
+     */
+    private static final class Principal {
+        private final String uid;
+        private final String[] roles;
+        private final Map<String, String> attributes;
+        private final int hash;
+
+        private Principal(UserDetails userDetails) {
+            this.uid = userDetails.getUid();
+            this.roles = userDetails.getRoles();
+            this.attributes = userDetails.getAttributes();
+            this.hash = 31 * (31 * uid.hashCode() + Arrays.hashCode(roles)) + Objects.hashCode(attributes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Principal)) {
+                return false;
+            }
+            Principal other = (Principal) o;
+            return hash == other.hash
+                    && uid.equals(other.uid)
+                    && Arrays.equals(roles, other.roles)
+                    && Objects.equals(attributes, other.attributes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static class Renewal {
+        private final long issuedAt;
+        private volatile Token token;
+
+        private Renewal(long issuedAt) {
+            this.issuedAt = issuedAt;
+        }
+    }
+
+    public static class Builder {
+        private final TokenStore tokenStore;
+        private long threshold = DEFAULT_THRESHOLD;
+        private long interval = DEFAULT_INTERVAL;
+        private int maxEntries = DEFAULT_MAX_ENTRIES;
+        private String tokenHeader = DEFAULT_TOKEN_HEADER;
+        private String expiresHeader = DEFAULT_EXPIRES_HEADER;
+        private Executor executor;
+
+        public Builder(TokenStore tokenStore) {
+            this.tokenStore = tokenStore;
+        }
+
+        /**
+         * @param threshold 剩余时间低于该值时续期，单位秒
+         */
+        public Builder setThreshold(long threshold) {
+            this.threshold = threshold;
+            return this;
+        }
+
+        /**
+         * @param interval 同一用户续期间隔，单位秒
+         */
+        public Builder setInterval(long interval) {
+            this.interval = interval;
+            return this;
+        }
+
+        public Builder setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        public Builder setTokenHeader(String tokenHeader) {
+            this.tokenHeader = tokenHeader;
+            return this;
+        }
+
+        public Builder setExpiresHeader(String expiresHeader) {
+            this.expiresHeader = expiresHeader;
+            return this;
+        }
+
+        /**
+         * @param executor 后台签发执行器，为空时在请求线程签发
+         */
+        public Builder setExecutor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public SlidingSessionRenewer build() {
+            return new SlidingSessionRenewer(tokenStore, threshold, interval, maxEntries, tokenHeader, expiresHeader, executor);
+        }
+    }
+}
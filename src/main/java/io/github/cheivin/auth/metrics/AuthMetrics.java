@@ -0,0 +1,135 @@
+package io.github.cheivin.auth.metrics;
+
+import io.github.cheivin.auth.exception.TokenExpiredException;
+import io.github.cheivin.auth.exception.TokenInvalidException;
+import io.github.cheivin.auth.exception.TokenNotPresentException;
+import io.github.cheivin.auth.exception.TokenThrottledException;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * 认证授权指标记录
+ */
+public interface AuthMetrics {
+    /**
+     * 不记录任何指标，未引入Micrometer时使用
+     */
+    AuthMetrics NOOP = new AuthMetrics() {
+        @Override
+        public long start() {
+            return 0L;
+        }
+
+        @Override
+        public void record(Stage stage, Outcome outcome, long start) {
+        }
+    };
+
+    /**
+     * 开始计时
+     *
+     * @return 起始时间，单位纳秒
+     */
+    default long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * 记录阶段耗时
+     *
+     * @param stage   阶段
+     * @param outcome 结果
+     * @param start   {@link #start()}返回的起始时间
+     */
+    void record(Stage stage, Outcome outcome, long start);
+
+    /**
+     * 指标阶段，每个阶段只会产生声明的结果
+     */
+    enum Stage {
+        /**
+         * 过滤器身份认证
+         */
+        AUTHENTICATION("auth.authentication", Outcome.OK, Outcome.NOT_PRESENT, Outcome.EXPIRED, Outcome.INVALID, Outcome.THROTTLED),
+        /**
+         * token解析及签名校验
+         */
+        TOKEN_PARSE("auth.token.parse", Outcome.OK, Outcome.NOT_PRESENT, Outcome.EXPIRED, Outcome.INVALID),
+        /**
+         * token生成
+         */
+        TOKEN_CREATE("auth.token.create", Outcome.OK),
+        /**
+         * token刷新
+         */
+        TOKEN_REFRESH("auth.token.refresh", Outcome.OK, Outcome.NOT_PRESENT, Outcome.EXPIRED, Outcome.INVALID),
+        /**
+         * 用户信息加载
+         */
+        USER_LOAD("auth.user.load", Outcome.OK, Outcome.NOT_PRESENT),
+        /**
+         * 权限验证
+         */
+        AUTHORIZATION("auth.authorization", Outcome.OK, Outcome.UNAUTHORIZED, Outcome.ERROR);
+
+        private final String metricName;
+        private final Set<Outcome> outcomes;
+
+        Stage(String metricName, Outcome first, Outcome... rest) {
+            this.metricName = metricName;
+            this.outcomes = Collections.unmodifiableSet(EnumSet.of(first, rest));
+        }
+
+        public String getMetricName() {
+            return metricName;
+        }
+
+        /**
+         * 阶段可能产生的结果
+         */
+        public Set<Outcome> getOutcomes() {
+            return outcomes;
+        }
+    }
+
+    /**
+     * 指标结果
+     */
+    enum Outcome {
+        OK("ok"),
+        NOT_PRESENT("not-present"),
+        EXPIRED("expired"),
+        INVALID("invalid"),
+        THROTTLED("throttled"),
+        UNAUTHORIZED("unauthorized"),
+        /**
+         * 验证过程抛出异常
+         */
+        ERROR("error");
+
+        private final String tag;
+
+        Outcome(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+
+        public static Outcome of(TokenInvalidException e) {
+            if (e instanceof TokenNotPresentException) {
+                return NOT_PRESENT;
+            }
+            if (e instanceof TokenExpiredException) {
+                return EXPIRED;
+            }
+            if (e instanceof TokenThrottledException) {
+                return THROTTLED;
+            }
+            return INVALID;
+        }
+    }
+}
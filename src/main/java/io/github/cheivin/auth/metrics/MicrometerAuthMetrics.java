@@ -0,0 +1,41 @@
+package io.github.cheivin.auth.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于Micrometer的指标记录，每个阶段一个计时器，按结果打标签；
+ * 只注册阶段声明的结果组合，未声明的组合不记录
+ */
+public class MicrometerAuthMetrics implements AuthMetrics {
+    private static final String OUTCOME_TAG = "outcome";
+
+    /**
+     * 按[阶段][结果]缓存计时器，构造时注册，之后只读，避免每次记录都查找注册表
+     */
+    private final Timer[][] timers;
+
+    public MicrometerAuthMetrics(MeterRegistry registry) {
+        Stage[] stages = Stage.values();
+        Outcome[] outcomes = Outcome.values();
+        Timer[][] timers = new Timer[stages.length][outcomes.length];
+        for (Stage stage : stages) {
+            for (Outcome outcome : stage.getOutcomes()) {
+                timers[stage.ordinal()][outcome.ordinal()] = Timer.builder(stage.getMetricName())
+                        .tag(OUTCOME_TAG, outcome.getTag())
+                        .register(registry);
+            }
+        }
+        this.timers = timers;
+    }
+
+    @Override
+    public void record(Stage stage, Outcome outcome, long start) {
+        Timer timer = timers[stage.ordinal()][outcome.ordinal()];
+        if (timer != null) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
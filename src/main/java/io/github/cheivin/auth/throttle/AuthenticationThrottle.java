@@ -0,0 +1,163 @@
+package io.github.cheivin.auth.throttle;
+
+import io.github.cheivin.auth.clock.AuthClock;
+import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 认证失败限流
+ * <p>
+ * 按客户端标识散列到固定大小的分段表，每段是一个以CAS更新的漏桶：
+ * 每次验证失败记一次，按固定速率恢复，累计达到上限后拒绝该客户端，直到恢复出一次完整失败的余量。
+ * 分段表大小固定，不同客户端散列冲突时共用一个桶，内存占用与客户端数量无关。
+ */
+public class AuthenticationThrottle {
+    /**
+     * 默认允许连续失败次数
+     */
+    protected static final int DEFAULT_CAPACITY = 20;
+    /**
+     * 默认每秒恢复次数
+     */
+    protected static final double DEFAULT_REFILL_PER_SECOND = 1;
+    /**
+     * 默认分段数
+     */
+    protected static final int DEFAULT_STRIPES = 65536;
+
+    /**
+     * 一次失败对应的计数单位，用于表示小数次数
+     */
+    private static final long UNIT = 1 << 10;
+    private static final int COUNT_BITS = 24;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long TIME_MASK = (1L << (64 - COUNT_BITS)) - 1;
+
+    private final ThrottleKeyResolver keyResolver;
+    /**
+     * 每个桶：高40位为最后更新时间（毫秒，相对于base），低24位为累计失败计数
+     */
+    private final AtomicLongArray buckets;
+    private final int mask;
+    private final long limit;
+    private final long leakPerSecond;
+    private final AuthClock clock;
+    private final long base;
+
+    private AuthenticationThrottle(ThrottleKeyResolver keyResolver, int capacity, double refillPerSecond, int stripes, AuthClock clock) {
+        if (capacity <= 0 || capacity * UNIT > COUNT_MASK) {
+            throw new IllegalArgumentException("capacity must be between 1 and " + COUNT_MASK / UNIT);
+        }
+        if (refillPerSecond <= 0) {
+            throw new IllegalArgumentException("refillPerSecond must be positive");
+        }
+        this.keyResolver = keyResolver;
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.buckets = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.limit = capacity * UNIT;
+        this.leakPerSecond = Math.max(1, (long) (refillPerSecond * UNIT));
+        this.clock = clock == null ? AuthClock.SYSTEM : clock;
+        this.base = this.clock.millis();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 计算客户端标识
+     *
+     * @param request 请求
+     * @param token   请求携带的token
+     * @return 标识
+     */
+    public int resolveKey(HttpServletRequest request, String token) {
+        return keyResolver.resolve(request, token);
+    }
+
+    /**
+     * 客户端是否已被限流
+     * <p>
+     * 计数按毫秒连续恢复，只要求低于上限会在刚恢复一点后就放行下一次验证；
+     * 要求留出一次完整失败的余量，限流期间的验证次数才与恢复速率一致
+     *
+     * @param key 客户端标识
+     * @return 是否限流
+     */
+    public boolean isThrottled(int key) {
+        long state = buckets.get(index(key));
+        return state != 0 && count(state, now()) > limit - UNIT;
+    }
+
+    /**
+     * 记录一次验证失败
+     *
+     * @param key 客户端标识
+     */
+    public void onFailure(int key) {
+        int index = index(key);
+        long now = now();
+        long state, next;
+        do {
+            state = buckets.get(index);
+            long count = Math.min(limit, count(state, now) + UNIT);
+            next = (now << COUNT_BITS) | count;
+        } while (!buckets.compareAndSet(index, state, next));
+    }
+
+    private long now() {
+        return (clock.millis() - base) & TIME_MASK;
+    }
+
+    private long count(long state, long now) {
+        long count = state & COUNT_MASK;
+        long elapsed = now - (state >>> COUNT_BITS);
+        if (elapsed <= 0) {
+            return count;
+        }
+        return Math.max(0, count - elapsed * leakPerSecond / 1000);
+    }
+
+    private int index(int key) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    public static class Builder {
+        private ThrottleKeyResolver keyResolver = ThrottleKeyResolver.remoteAddress();
+        private int capacity = DEFAULT_CAPACITY;
+        private double refillPerSecond = DEFAULT_REFILL_PER_SECOND;
+        private int stripes = DEFAULT_STRIPES;
+        private AuthClock clock = AuthClock.SYSTEM;
+
+        public Builder setKeyResolver(ThrottleKeyResolver keyResolver) {
+            this.keyResolver = keyResolver;
+            return this;
+        }
+
+        public Builder setCapacity(int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        public Builder setRefillPerSecond(double refillPerSecond) {
+            this.refillPerSecond = refillPerSecond;
+            return this;
+        }
+
+        public Builder setStripes(int stripes) {
+            this.stripes = stripes;
+            return this;
+        }
+
+        public Builder setClock(AuthClock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public AuthenticationThrottle build() {
+            return new AuthenticationThrottle(keyResolver, capacity, refillPerSecond, stripes, clock);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package io.github.cheivin.auth.throttle;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * 限流客户端标识
+ * <p>
+ * 返回标识的哈希值而不是字符串，避免每个请求截取或拼接字符串
+ */
+@FunctionalInterface
+public interface ThrottleKeyResolver {
+
+    /**
+     * 计算客户端标识
+     *
+     * @param request 请求
+     * @param token   请求携带的token
+     * @return 标识哈希值
+     */
+    int resolve(HttpServletRequest request, String token);
+
+    /**
+     * 按客户端IP限流，经过代理时需配合{@code ForwardedHeaderFilter}使用
+     */
+    static ThrottleKeyResolver remoteAddress() {
+        return (request, token) -> request.getRemoteAddr().hashCode();
+    }
+
+    /**
+     * 按token内容限流
+     * <p>
+     * 跳过第一个{@code .}之前的部分：同一签发方的JWT头完全相同，按头部计算会让所有客户端共用一个桶；
+     * 从载荷开始取，不同用户的token落在不同的桶。
+     * <p>
+     * 标识完全来自客户端提交的内容，每次提交不同的随机串都会落到新的桶，永远不会被限流；
+     * 只能用于限制单个token的重放，不能作为唯一的限流标识防御暴力尝试
+     *
+     * @param length 参与计算的字符数
+     */
+    static ThrottleKeyResolver tokenPrefix(int length) {
+        return (request, token) -> {
+            int start = token.indexOf('.') + 1;
+            int end = Math.min(start + length, token.length());
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + token.charAt(i);
+            }
+            return hash;
+        };
+    }
+}
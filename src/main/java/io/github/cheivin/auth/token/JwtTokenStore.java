@@ -1,15 +1,19 @@
 package io.github.cheivin.auth.token;
 
+import io.github.cheivin.auth.clock.AuthClock;
 import io.github.cheivin.auth.exception.TokenExpiredException;
 import io.github.cheivin.auth.exception.TokenInvalidException;
 import io.github.cheivin.auth.exception.TokenNotPresentException;
+import io.github.cheivin.auth.metrics.AuthMetrics;
+import io.github.cheivin.auth.metrics.AuthMetrics.Outcome;
+import io.github.cheivin.auth.metrics.AuthMetrics.Stage;
+import io.github.cheivin.auth.user.ImmutableUserDetails;
 import io.github.cheivin.auth.user.UserDetails;
 import io.jsonwebtoken.*;
 import org.springframework.util.StringUtils;
 
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 /**
  * JWT-token管理器
@@ -37,6 +41,22 @@ public class JwtTokenStore implements TokenStore {
      * 严格模式，accessToken只能访问验证使用，refreshToken只能刷新token使用
      */
     private final boolean strict;
+    /**
+     * 签发者，设置后签发的token携带iss，验证时要求iss一致
+     */
+    private final String issuer;
+    /**
+     * 指标记录
+     */
+    private final AuthMetrics metrics;
+    /**
+     * 时间源
+     */
+    private final AuthClock clock;
+    /**
+     * 交给jjwt的时间源，验证过期时与签发使用同一时间
+     */
+    private final io.jsonwebtoken.Clock jwtClock;
 
     /**
      * iss(issuer): jwt签发者
@@ -48,11 +68,15 @@ public class JwtTokenStore implements TokenStore {
      * jti(JWT ID): jwt的唯一身份标识，主要用来作为一次性token,从而回避重放攻击。
      */
 
-    private JwtTokenStore(String secret, long accessExpire, long refreshExpire, boolean strict) {
+    private JwtTokenStore(String secret, long accessExpire, long refreshExpire, boolean strict, String issuer, AuthMetrics metrics, AuthClock clock) {
         this.secret = secret;
         this.accessExpire = accessExpire;
         this.refreshExpire = refreshExpire;
         this.strict = strict;
+        this.issuer = issuer;
+        this.metrics = metrics == null ? AuthMetrics.NOOP : metrics;
+        this.clock = clock == null ? AuthClock.SYSTEM : clock;
+        this.jwtClock = () -> new Date(this.clock.millis());
     }
 
     public static Builder builder(String secret) {
@@ -60,30 +84,52 @@ public class JwtTokenStore implements TokenStore {
     }
 
     private Date dateAfter(long second) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.add(Calendar.SECOND, Math.toIntExact(second));
-        return calendar.getTime();
+        return new Date(clock.millis() + TimeUnit.SECONDS.toMillis(second));
+    }
+
+    /**
+     * 距离过期的剩余时间
+     *
+     * @param expireAt 过期时间
+     * @return 剩余秒数
+     */
+    private long secondsUntil(Date expireAt) {
+        return TimeUnit.MILLISECONDS.toSeconds(expireAt.getTime() - clock.millis());
     }
 
 
     /**
      * 解析token
      *
-     * @param token token
+     * @param token    token
+     * @param audience 严格模式下要求的aud，为null时不校验
      * @return token解析结果
      * @throws TokenInvalidException token不可用
      */
-    private Claims parseToken(String token) throws TokenInvalidException {
+    private Claims parseToken(String token, String audience) throws TokenInvalidException {
+        long start = metrics.start();
         if (!StringUtils.hasText(token)) {
-            throw new TokenNotPresentException();
+            metrics.record(Stage.TOKEN_PARSE, Outcome.NOT_PRESENT, start);
+            throw TokenNotPresentException.INSTANCE;
         }
         try {
-            return Jwts.parser().setSigningKey(secret)
-                    .parseClaimsJws(token)
-                    .getBody();
+            JwtParser parser = Jwts.parser().setClock(jwtClock).setSigningKey(secret);
+            if (issuer != null) {
+                parser.requireIssuer(issuer);
+            }
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            if (strict && audience != null && !audience.equals(claims.getAudience())) {
+                metrics.record(Stage.TOKEN_PARSE, Outcome.INVALID, start);
+                throw new TokenInvalidException(token, "Token store is strict mode. current aud is:" + claims.getAudience()
+                        + ", but allowed aud is:" + audience);
+            }
+            metrics.record(Stage.TOKEN_PARSE, Outcome.OK, start);
+            return claims;
         } catch (ExpiredJwtException e) {
+            metrics.record(Stage.TOKEN_PARSE, Outcome.EXPIRED, start);
             throw new TokenExpiredException(token, e.getClaims().getExpiration(), e);
-        } catch (UnsupportedJwtException | MalformedJwtException | IllegalArgumentException e) {
+        } catch (UnsupportedJwtException | MalformedJwtException | SignatureException | InvalidClaimException | IllegalArgumentException e) {
+            metrics.record(Stage.TOKEN_PARSE, Outcome.INVALID, start);
             throw new TokenInvalidException(token, e);
         }
     }
@@ -94,6 +140,7 @@ public class JwtTokenStore implements TokenStore {
                         .signWith(SignatureAlgorithm.HS256, secret)
                         .setClaims(Jwts.claims(baseClaims))
                         .setAudience(audience)
+                        .setIssuer(issuer)
                         .setExpiration(dateAfter(ttl))
                         .compact())
                 .expiresIn(ttl)
@@ -102,22 +149,36 @@ public class JwtTokenStore implements TokenStore {
 
     @Override
     public AuthenticationToken createToken(UserDetails userDetails) {
+        long start = metrics.start();
         Claims baseClaims = Jwts.claims().setSubject(String.valueOf(userDetails.getUid()));
         baseClaims.put("user", userDetails);
-        return AuthenticationToken.builder()
+        AuthenticationToken token = AuthenticationToken.builder()
                 .accessToken(createToken(baseClaims, ACCESS_AUDIENCE, accessExpire))
                 .refreshToken(createToken(baseClaims, REFRESH_AUDIENCE, refreshExpire))
                 .build();
+        metrics.record(Stage.TOKEN_CREATE, Outcome.OK, start);
+        return token;
+    }
+
+    @Override
+    public Token createAccessToken(UserDetails userDetails) {
+        long start = metrics.start();
+        Claims baseClaims = Jwts.claims().setSubject(String.valueOf(userDetails.getUid()));
+        baseClaims.put("user", userDetails);
+        Token token = createToken(baseClaims, ACCESS_AUDIENCE, accessExpire);
+        metrics.record(Stage.TOKEN_CREATE, Outcome.OK, start);
+        return token;
     }
 
     @Override
     public AuthenticationToken refreshToken(String refreshToken, UserDetails userDetails) throws TokenInvalidException {
-        Claims claims = parseToken(refreshToken);
-        if (strict) {
-            if (!REFRESH_AUDIENCE.equals(claims.getAudience())) {
-                throw new TokenInvalidException(refreshToken, "Token store is strict mode. current aud is:" + claims.getAudience()
-                        + ", but allowed aud is:" + REFRESH_AUDIENCE);
-            }
+        long start = metrics.start();
+        Claims claims;
+        try {
+            claims = parseToken(refreshToken, REFRESH_AUDIENCE);
+        } catch (TokenInvalidException e) {
+            metrics.record(Stage.TOKEN_REFRESH, Outcome.of(e), start);
+            throw e;
         }
         Claims baseClaims = Jwts.claims().setSubject(String.valueOf(userDetails.getUid()));
         baseClaims.put("user", userDetails);
@@ -126,7 +187,7 @@ public class JwtTokenStore implements TokenStore {
                 .build();
         // 判断是否需要刷新refreshToken
         Date expireAt = claims.getExpiration();
-        long remainingTime = ChronoUnit.SECONDS.between(Instant.now(), expireAt.toInstant());
+        long remainingTime = secondsUntil(expireAt);
         // 小于access存活时间才刷新
         if (remainingTime <= accessExpire) {
             token.setRefreshToken(createToken(baseClaims, REFRESH_AUDIENCE, refreshExpire));
@@ -136,39 +197,37 @@ public class JwtTokenStore implements TokenStore {
                     .expiresIn(remainingTime)
                     .build());
         }
+        metrics.record(Stage.TOKEN_REFRESH, Outcome.OK, start);
         return token;
     }
 
 
     @Override
     public Optional<Long> verifyAccessToken(String accessToken) throws TokenInvalidException {
-        Claims claims = parseToken(accessToken);
-        if (strict) {
-            if (!ACCESS_AUDIENCE.equals(claims.getAudience())) {
-                throw new TokenInvalidException(accessToken, "Token store is strict mode. current aud is:" + claims.getAudience()
-                        + ", but allowed aud is:" + ACCESS_AUDIENCE);
-            }
-        }
+        Claims claims = parseToken(accessToken, ACCESS_AUDIENCE);
         Date expireAt = claims.getExpiration();
-        return Optional.of(ChronoUnit.SECONDS.between(Instant.now(), expireAt.toInstant()));
+        return Optional.of(secondsUntil(expireAt));
     }
 
 
+    /**
+     * 解析token中的用户信息
+     * <p>
+     * 返回不可变的紧凑用户信息，持有的token即传入的字符串，与请求同生命周期，不额外复制
+     */
     @SuppressWarnings("unchecked")
     @Override
     public UserDetails getUserDetailsByToken(String accessToken) throws TokenInvalidException {
-        Claims claims = parseToken(accessToken);
+        Claims claims = parseToken(accessToken, null);
         Map<String, Object> detailMap = (Map<String, Object>) claims.get("user");
         List<String> roleList = (List<String>) detailMap.get("roles");
         Object uid = detailMap.get("uid");
         Object name = detailMap.get("name");
-        return UserDetails.builder()
-                .uid(uid == null ? null : (String) uid)
-                .name(name == null ? null : (String) name)
-                .roles(roleList.toArray(new String[]{}))
-                .attributes((Map<String, String>) detailMap.get("attributes"))
-                .token(accessToken)
-                .build();
+        return ImmutableUserDetails.of(uid == null ? null : (String) uid,
+                name == null ? null : (String) name,
+                roleList == null ? null : roleList.toArray(new String[0]),
+                (Map<String, String>) detailMap.get("attributes"),
+                accessToken);
     }
 
     public static class Builder {
@@ -176,6 +235,9 @@ public class JwtTokenStore implements TokenStore {
         private long accessExpire = ACCESS_EXPIRE; // 1天
         private long refreshExpire = REFRESH_EXPIRE; // 7天
         private boolean strict = true; // 严格模式
+        private String issuer;
+        private AuthMetrics metrics = AuthMetrics.NOOP;
+        private AuthClock clock = AuthClock.SYSTEM;
 
         public Builder(String secret) {
             this.secret = secret;
@@ -196,8 +258,23 @@ public class JwtTokenStore implements TokenStore {
             return this;
         }
 
+        public Builder setIssuer(String issuer) {
+            this.issuer = issuer;
+            return this;
+        }
+
+        public Builder setMetrics(AuthMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public Builder setClock(AuthClock clock) {
+            this.clock = clock;
+            return this;
+        }
+
         public JwtTokenStore build() {
-            return new JwtTokenStore(secret, accessExpire, refreshExpire, strict);
+            return new JwtTokenStore(secret, accessExpire, refreshExpire, strict, issuer, metrics, clock);
         }
     }
 
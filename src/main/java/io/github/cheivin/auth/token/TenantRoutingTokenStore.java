@@ -0,0 +1,402 @@
+package io.github.cheivin.auth.token;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.github.cheivin.auth.clock.AuthClock;
+import io.github.cheivin.auth.exception.TokenInvalidException;
+import io.github.cheivin.auth.exception.TokenNotPresentException;
+import io.github.cheivin.auth.metrics.AuthMetrics;
+import io.github.cheivin.auth.user.UserDetails;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多租户token管理器
+ * <p>
+ * 按token的iss路由到租户独立的{@link JwtTokenStore}，每个租户有自己的密钥、过期时间及严格模式。
+ * 租户管理器在首次使用时创建，空闲超时后移除，数量超过上限时移除最久未使用的租户，内存占用有上限。
+ * 签发token时由用户属性确定租户，租户管理器以租户为签发者，验证时要求iss与租户一致。
+ * 不存在的租户在一段时间内记为未知，期间携带该iss的token不再查询{@link TenantTokenStoreFactory}。
+ * <p>
+ * 路由使用的iss未经验证，每次更换iss的请求都会绕过未知租户记录，因此由token触发的租户查询按秒限额，
+ * 超出限额的请求直接拒绝，不查询也不记录；也可配置租户白名单，名单外的iss直接拒绝。
+ * 按用户属性签发token时租户来自可信数据，不受限额影响。
+ */
+public class TenantRoutingTokenStore implements TokenStore {
+    /**
+     * 默认用户属性中的租户字段
+     */
+    protected static final String DEFAULT_TENANT_ATTRIBUTE = "tenant";
+    /**
+     * 默认最多缓存的租户数
+     */
+    protected static final int DEFAULT_MAX_TENANTS = 1000;
+    /**
+     * 默认租户空闲时间，30分钟
+     */
+    protected static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+    /**
+     * 默认未知租户记录时间，1分钟
+     */
+    protected static final Duration DEFAULT_UNKNOWN_TENANT_TTL = Duration.ofMinutes(1);
+    /**
+     * 默认最多记录的未知租户数
+     */
+    protected static final int DEFAULT_MAX_UNKNOWN_TENANTS = 1000;
+    /**
+     * 默认每秒由token触发的租户查询次数
+     */
+    protected static final int DEFAULT_MAX_LOOKUPS_PER_SECOND = 20;
+
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    private static final String ISSUER_CLAIM = "iss";
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final TenantTokenStoreFactory factory;
+    private final String tenantAttribute;
+    private final int maxTenants;
+    private final long idleTimeoutMillis;
+    private final long unknownTenantTtlMillis;
+    private final int maxUnknownTenants;
+    private final int maxLookupsPerSecond;
+    /**
+     * 租户白名单，为空时不限制
+     */
+    private final Set<String> allowedTenants;
+    private final AuthMetrics metrics;
+    private final AuthClock clock;
+
+    private final ConcurrentHashMap<String, TenantEntry> stores = new ConcurrentHashMap<>();
+    /**
+     * 未知租户及其记录的过期时间
+     */
+    private final ConcurrentHashMap<String, Long> unknownTenants = new ConcurrentHashMap<>();
+    /**
+     * 查询限额窗口：高32位为当前秒，低32位为该秒已查询次数
+     */
+    private final AtomicLong lookupWindow = new AtomicLong();
+    private volatile long lastSweep;
+
+    private TenantRoutingTokenStore(TenantTokenStoreFactory factory, String tenantAttribute, int maxTenants, Duration idleTimeout,
+                                    Duration unknownTenantTtl, int maxUnknownTenants, int maxLookupsPerSecond,
+                                    Collection<String> allowedTenants, AuthMetrics metrics, AuthClock clock) {
+        this.factory = factory;
+        this.tenantAttribute = tenantAttribute;
+        this.maxTenants = maxTenants;
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+        this.unknownTenantTtlMillis = unknownTenantTtl.toMillis();
+        this.maxUnknownTenants = maxUnknownTenants;
+        this.maxLookupsPerSecond = maxLookupsPerSecond;
+        this.allowedTenants = allowedTenants == null ? Collections.emptySet() : Set.copyOf(allowedTenants);
+        this.metrics = metrics == null ? AuthMetrics.NOOP : metrics;
+        this.clock = clock == null ? AuthClock.SYSTEM : clock;
+        this.lastSweep = this.clock.millis();
+    }
+
+    public static Builder builder(TenantTokenStoreFactory factory) {
+        return new Builder(factory);
+    }
+
+    @Override
+    public AuthenticationToken createToken(UserDetails userDetails) {
+        return storeOfUser(userDetails).createToken(userDetails);
+    }
+
+    @Override
+    public Token createAccessToken(UserDetails userDetails) {
+        return storeOfUser(userDetails).createAccessToken(userDetails);
+    }
+
+    @Override
+    public AuthenticationToken refreshToken(String refreshToken, UserDetails userDetails) throws TokenInvalidException {
+        return storeOfToken(refreshToken).refreshToken(refreshToken, userDetails);
+    }
+
+    @Override
+    public Optional<Long> verifyAccessToken(String accessToken) throws TokenInvalidException {
+        return storeOfToken(accessToken).verifyAccessToken(accessToken);
+    }
+
+    @Override
+    public UserDetails getUserDetailsByToken(String accessToken) throws TokenInvalidException {
+        return storeOfToken(accessToken).getUserDetailsByToken(accessToken);
+    }
+
+    /**
+     * 当前缓存的租户数
+     */
+    public int getTenantCount() {
+        return stores.size();
+    }
+
+    /**
+     * 移除租户管理器及未知租户记录，租户配置变更或新增租户后调用
+     *
+     * @param tenant 租户
+     */
+    public void evict(String tenant) {
+        stores.remove(tenant);
+        unknownTenants.remove(tenant);
+    }
+
+    private JwtTokenStore storeOfUser(UserDetails userDetails) {
+        String tenant = userDetails.getAttributes().get(tenantAttribute);
+        if (!StringUtils.hasText(tenant)) {
+            throw new IllegalArgumentException("User attribute " + tenantAttribute + " is required for tenant token");
+        }
+        JwtTokenStore store = store(tenant, true);
+        if (store == null) {
+            throw new IllegalArgumentException("Unknown tenant: " + tenant);
+        }
+        return store;
+    }
+
+    private JwtTokenStore storeOfToken(String token) throws TokenInvalidException {
+        if (!StringUtils.hasText(token)) {
+            throw TokenNotPresentException.INSTANCE;
+        }
+        String tenant = peekIssuer(token);
+        if (tenant == null) {
+            throw new TokenInvalidException(token, "token has no tenant");
+        }
+        JwtTokenStore store = store(tenant, false);
+        if (store == null) {
+            throw new TokenInvalidException(token, "unknown tenant");
+        }
+        return store;
+    }
+
+    /**
+     * 获取租户管理器
+     *
+     * @param tenant  租户
+     * @param trusted 租户是否来自可信数据，不可信时查询租户配置受每秒限额限制
+     * @return 租户管理器，租户不存在或超出查询限额时为null
+     */
+    private JwtTokenStore store(String tenant, boolean trusted) {
+        if (!allowedTenants.isEmpty() && !allowedTenants.contains(tenant)) {
+            return null;
+        }
+        long now = clock.millis();
+        TenantEntry entry = stores.get(tenant);
+        if (entry == null) {
+            Long unknownUntil = unknownTenants.get(tenant);
+            if (unknownUntil != null) {
+                if (now < unknownUntil) {
+                    return null;
+                }
+                unknownTenants.remove(tenant, unknownUntil);
+            }
+            if (!trusted && !tryAcquireLookup(now)) {
+                return null;
+            }
+            Optional<JwtTokenStore.Builder> builder = factory.create(tenant);
+            if (builder.isEmpty()) {
+                markUnknown(tenant, now);
+                return null;
+            }
+            entry = stores.computeIfAbsent(tenant, key -> new TenantEntry(builder.get()
+                    .setIssuer(key)
+                    .setMetrics(metrics)
+                    .setClock(clock)
+                    .build(), now));
+            if (stores.size() > maxTenants) {
+                evictLeastRecentlyUsed();
+            }
+        }
+        entry.lastAccess = now;
+        if (now - lastSweep > idleTimeoutMillis / 2) {
+            lastSweep = now;
+            stores.values().removeIf(candidate -> now - candidate.lastAccess > idleTimeoutMillis);
+        }
+        return entry.store;
+    }
+
+    /**
+     * 占用一次租户查询限额
+     */
+    private boolean tryAcquireLookup(long now) {
+        if (maxLookupsPerSecond <= 0) {
+            return true;
+        }
+        long second = now / 1000 & COUNT_MASK;
+        long current, next;
+        do {
+            current = lookupWindow.get();
+            if (current >>> 32 != second) {
+                next = second << 32 | 1;
+            } else if ((current & COUNT_MASK) < maxLookupsPerSecond) {
+                next = current + 1;
+            } else {
+                return false;
+            }
+        } while (!lookupWindow.compareAndSet(current, next));
+        return true;
+    }
+
+    /**
+     * 记录未知租户，超过上限时先清理过期记录，仍超过时移除最早过期的十分之一
+     */
+    private void markUnknown(String tenant, long now) {
+        if (unknownTenants.size() >= maxUnknownTenants) {
+            unknownTenants.values().removeIf(until -> until <= now);
+            if (unknownTenants.size() >= maxUnknownTenants) {
+                List<Map.Entry<String, Long>> entries = new ArrayList<>(unknownTenants.entrySet());
+                entries.sort(Map.Entry.comparingByValue());
+                int excess = entries.size() - maxUnknownTenants + Math.max(1, maxUnknownTenants / 10);
+                for (int i = 0; i < excess && i < entries.size(); i++) {
+                    unknownTenants.remove(entries.get(i).getKey(), entries.get(i).getValue());
+                }
+            }
+        }
+        unknownTenants.put(tenant, now + unknownTenantTtlMillis);
+    }
+
+    /**
+     * 移除最久未使用的租户，一次移除超出部分及上限的十分之一，避免每次新建租户都排序
+     */
+    private void evictLeastRecentlyUsed() {
+        List<Map.Entry<String, TenantEntry>> entries = new ArrayList<>(stores.entrySet());
+        int excess = entries.size() - maxTenants + Math.max(1, maxTenants / 10);
+        if (excess <= 0) {
+            return;
+        }
+        entries.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+        for (int i = 0; i < excess && i < entries.size(); i++) {
+            stores.remove(entries.get(i).getKey(), entries.get(i).getValue());
+        }
+    }
+
+    /**
+     * 读取未验证的iss，只用于选择租户，签名及iss由租户管理器验证
+     */
+    private static String peekIssuer(String token) {
+        int first = token.indexOf('.');
+        int second = first < 0 ? -1 : token.indexOf('.', first + 1);
+        if (second < 0) {
+            return null;
+        }
+        try {
+            byte[] payload = Base64.getUrlDecoder().decode(token.substring(first + 1, second));
+            try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    return null;
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    JsonToken value = parser.nextToken();
+                    if (ISSUER_CLAIM.equals(field)) {
+                        return value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    }
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+        return null;
+    }
+
+    private static class TenantEntry {
+        private final JwtTokenStore store;
+        private volatile long lastAccess;
+
+        private TenantEntry(JwtTokenStore store, long now) {
+            this.store = store;
+            this.lastAccess = now;
+        }
+    }
+
+    public static class Builder {
+        private final TenantTokenStoreFactory factory;
+        private String tenantAttribute = DEFAULT_TENANT_ATTRIBUTE;
+        private int maxTenants = DEFAULT_MAX_TENANTS;
+        private Duration idleTimeout = DEFAULT_IDLE_TIMEOUT;
+        private Duration unknownTenantTtl = DEFAULT_UNKNOWN_TENANT_TTL;
+        private int maxUnknownTenants = DEFAULT_MAX_UNKNOWN_TENANTS;
+        private int maxLookupsPerSecond = DEFAULT_MAX_LOOKUPS_PER_SECOND;
+        private Collection<String> allowedTenants;
+        private AuthMetrics metrics = AuthMetrics.NOOP;
+        private AuthClock clock = AuthClock.SYSTEM;
+
+        public Builder(TenantTokenStoreFactory factory) {
+            this.factory = factory;
+        }
+
+        public Builder setTenantAttribute(String tenantAttribute) {
+            this.tenantAttribute = tenantAttribute;
+            return this;
+        }
+
+        public Builder setMaxTenants(int maxTenants) {
+            this.maxTenants = maxTenants;
+            return this;
+        }
+
+        public Builder setIdleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        /**
+         * @param unknownTenantTtl 未知租户的记录时间，期间不再查询租户配置
+         */
+        public Builder setUnknownTenantTtl(Duration unknownTenantTtl) {
+            this.unknownTenantTtl = unknownTenantTtl;
+            return this;
+        }
+
+        public Builder setMaxUnknownTenants(int maxUnknownTenants) {
+            this.maxUnknownTenants = maxUnknownTenants;
+            return this;
+        }
+
+        /**
+         * @param maxLookupsPerSecond 每秒由token触发的租户查询次数，不大于0时不限制
+         */
+        public Builder setMaxLookupsPerSecond(int maxLookupsPerSecond) {
+            this.maxLookupsPerSecond = maxLookupsPerSecond;
+            return this;
+        }
+
+        /**
+         * @param allowedTenants 租户白名单，为空时不限制
+         */
+        public Builder setAllowedTenants(Collection<String> allowedTenants) {
+            this.allowedTenants = allowedTenants;
+            return this;
+        }
+
+        public Builder setMetrics(AuthMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * @param clock 时间源，同时用于各租户的token管理器
+         */
+        public Builder setClock(AuthClock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public TenantRoutingTokenStore build() {
+            return new TenantRoutingTokenStore(factory, tenantAttribute, maxTenants, idleTimeout, unknownTenantTtl, maxUnknownTenants, maxLookupsPerSecond, allowedTenants, metrics, clock);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package io.github.cheivin.auth.token;
+
+import java.util.Optional;
+
+/**
+ * 租户token管理器配置
+ */
+@FunctionalInterface
+public interface TenantTokenStoreFactory {
+
+    /**
+     * 获取租户的token管理器配置，包括密钥、过期时间及严格模式
+     * <p>
+     * 返回空的租户在{@link TenantRoutingTokenStore}中记为未知，记录时间内不再调用；新增租户后可调用
+     * {@link TenantRoutingTokenStore#evict(String)}使其立即生效。
+     * 参数可能来自未验证的token，由token触发的调用次数按秒限额
+     *
+     * @param tenant 租户
+     * @return 配置，租户不存在时为空
+     */
+    Optional<JwtTokenStore.Builder> create(String tenant);
+}
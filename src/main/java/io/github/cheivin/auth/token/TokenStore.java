@@ -18,6 +18,16 @@ public interface TokenStore {
      */
     AuthenticationToken createToken(UserDetails userDetails);
 
+    /**
+     * 只生成访问token
+     *
+     * @param userDetails 用户信息
+     * @return 访问token
+     */
+    default Token createAccessToken(UserDetails userDetails) {
+        return createToken(userDetails).getAccessToken();
+    }
+
     /**
      * 刷新token
      *
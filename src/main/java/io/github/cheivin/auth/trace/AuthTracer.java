@@ -0,0 +1,89 @@
+package io.github.cheivin.auth.trace;
+
+/**
+ * 认证授权阶段追踪
+ * <p>
+ * 一次请求为一条追踪记录，各阶段作为子区间记录在当前线程上，
+ * 由{@link #begin(String, long)}开始、{@link #end()}结束。
+ */
+public interface AuthTracer {
+    /**
+     * 不追踪
+     */
+    AuthTracer NOOP = new AuthTracer() {
+        @Override
+        public long now() {
+            return 0L;
+        }
+
+        @Override
+        public void begin(String name, long start) {
+        }
+
+        @Override
+        public long stage(Stage stage, long since) {
+            return 0L;
+        }
+
+        @Override
+        public void end() {
+        }
+    };
+
+    /**
+     * 当前时间
+     *
+     * @return 时间，单位纳秒
+     */
+    default long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * 在当前线程开始一条追踪记录
+     *
+     * @param name  记录名称，通常为请求路径
+     * @param start 起始时间，单位纳秒，用于计算整条记录的耗时
+     */
+    void begin(String name, long start);
+
+    /**
+     * 记录阶段耗时，当前线程没有进行中的追踪时忽略
+     *
+     * @param stage 阶段
+     * @param since 阶段起始时间，单位纳秒
+     * @return 阶段结束时间，可作为下一阶段的起始时间
+     */
+    long stage(Stage stage, long since);
+
+    /**
+     * 结束当前线程的追踪记录
+     */
+    void end();
+
+    /**
+     * 追踪阶段
+     */
+    enum Stage {
+        /**
+         * 路径匹配
+         */
+        PATH_MATCH,
+        /**
+         * token提取
+         */
+        TOKEN_EXTRACT,
+        /**
+         * token验证
+         */
+        TOKEN_VERIFY,
+        /**
+         * 用户信息加载
+         */
+        USER_LOAD,
+        /**
+         * 权限验证
+         */
+        AUTHORIZATION
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.cheivin.auth.trace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 环形缓冲区追踪
+ * <p>
+ * 每个线程复用一份进行中的记录，结束时复制到预分配的环形缓冲区，记录过程不产生对象分配。
+ * 缓冲区写满后覆盖最早的记录，通过{@link #dump(int)}导出最慢的若干条。
+ */
+public class RingBufferAuthTracer implements AuthTracer {
+    /**
+     * 默认缓冲区大小
+     */
+    protected static final int DEFAULT_CAPACITY = 1024;
+
+    private static final int STAGES = Stage.values().length;
+
+    private final ThreadLocal<Span> current = ThreadLocal.withInitial(Span::new);
+    private final Span[] slots;
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong();
+
+    public RingBufferAuthTracer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity 缓冲区大小，向上取整为2的幂
+     */
+    public RingBufferAuthTracer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.slots = new Span[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Span();
+        }
+        this.mask = size - 1;
+    }
+
+    @Override
+    public void begin(String name, long start) {
+        Span span = current.get();
+        span.name = name;
+        span.start = start;
+        span.total = 0;
+        Arrays.fill(span.durations, 0L);
+        span.active = true;
+    }
+
+    @Override
+    public long stage(Stage stage, long since) {
+        long now = System.nanoTime();
+        Span span = current.get();
+        if (span.active) {
+            long duration = now - since;
+            span.durations[stage.ordinal()] += duration;
+            span.total += duration;
+        }
+        return now;
+    }
+
+    @Override
+    public void end() {
+        Span span = current.get();
+        if (!span.active) {
+            return;
+        }
+        span.active = false;
+        long elapsed = System.nanoTime() - span.start;
+        Span slot = slots[(int) (cursor.getAndIncrement() & mask)];
+        synchronized (slot) {
+            slot.copyFrom(span, elapsed, System.currentTimeMillis());
+        }
+        span.name = null;
+    }
+
+    /**
+     * 导出缓冲区内最慢的记录
+     *
+     * @param limit 条数
+     * @return 按各阶段总耗时倒序的记录
+     */
+    public List<TraceRecord> dump(int limit) {
+        List<TraceRecord> records = new ArrayList<>(slots.length);
+        for (Span slot : slots) {
+            synchronized (slot) {
+                if (slot.name != null) {
+                    records.add(new TraceRecord(slot.name, slot.timestamp, slot.durations.clone(), slot.total, slot.elapsed));
+                }
+            }
+        }
+        records.sort(Comparator.comparingLong(TraceRecord::getTotal).reversed());
+        return records.size() > limit ? new ArrayList<>(records.subList(0, limit)) : records;
+    }
+
+    /**
+     * 清空缓冲区
+     */
+    public void clear() {
+        for (Span slot : slots) {
+            synchronized (slot) {
+                slot.name = null;
+            }
+        }
+    }
+
+    private static class Span {
+        private final long[] durations = new long[STAGES];
+        private String name;
+        private long start;
+        private long total;
+        private long elapsed;
+        private long timestamp;
+        private boolean active;
+
+        private void copyFrom(Span span, long elapsed, long timestamp) {
+            this.name = span.name;
+            this.total = span.total;
+            this.elapsed = elapsed;
+            this.timestamp = timestamp;
+            System.arraycopy(span.durations, 0, this.durations, 0, STAGES);
+        }
+    }
+}
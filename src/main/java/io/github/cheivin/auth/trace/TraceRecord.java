@@ -0,0 +1,71 @@
+package io.github.cheivin.auth.trace;
+
+import io.github.cheivin.auth.trace.AuthTracer.Stage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 追踪记录
+ */
+public class TraceRecord {
+    private final String name;
+    private final long timestamp;
+    private final long[] durations;
+    private final long total;
+    private final long elapsed;
+
+    TraceRecord(String name, long timestamp, long[] durations, long total, long elapsed) {
+        this.name = name;
+        this.timestamp = timestamp;
+        this.durations = durations;
+        this.total = total;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * 记录名称，通常为请求路径
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 记录结束时间戳，单位毫秒
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * 阶段耗时，单位纳秒
+     */
+    public long getDuration(Stage stage) {
+        return durations[stage.ordinal()];
+    }
+
+    /**
+     * 各阶段总耗时，单位纳秒
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * 从开始到结束的耗时，包含后续过滤器及业务处理，单位纳秒
+     */
+    public long getElapsed() {
+        return elapsed;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(name)
+                .append(" elapsed=").append(TimeUnit.NANOSECONDS.toMicros(elapsed)).append("us")
+                .append(" total=").append(TimeUnit.NANOSECONDS.toMicros(total)).append("us");
+        for (Stage stage : Stage.values()) {
+            builder.append(' ').append(stage.name().toLowerCase())
+                    .append('=').append(TimeUnit.NANOSECONDS.toMicros(durations[stage.ordinal()])).append("us");
+        }
+        return builder.toString();
+    }
+}
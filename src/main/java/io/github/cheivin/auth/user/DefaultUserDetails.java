@@ -0,0 +1,60 @@
+package io.github.cheivin.auth.user;
+
+import lombok.*;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 可变的用户信息
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class DefaultUserDetails implements UserDetails {
+    private static final String[] NO_ROLES = new String[0];
+
+    /**
+     * 用户ID
+     */
+    private String uid;
+    /**
+     * 用户名称
+     */
+    private String name;
+    /**
+     * 角色身份
+     */
+    private String[] roles;
+    /**
+     * 属性
+     */
+    private Map<String, String> attributes;
+    /**
+     * 当前token
+     */
+    private transient String token;
+
+    @Override
+    public String[] getRoles() {
+        if (roles == null) {
+            return NO_ROLES;
+        }
+        return roles;
+    }
+
+    @Override
+    public Map<String, String> getAttributes() {
+        if (attributes == null) {
+            return Collections.emptyMap();
+        }
+        return attributes;
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+}
@@ -0,0 +1,192 @@
+package io.github.cheivin.auth.user;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 不可变的紧凑用户信息
+ * <p>
+ * 角色驻留后排序保存，属性按键值交替保存在一个数组中，读取时不产生对象分配。
+ * 序列化后的字段与{@link DefaultUserDetails}相同，适合缓存及高频读取。
+ * {@link #getRoles()}返回共享数组，不可修改。
+ * <p>
+ * 从token解析的用户保留请求中的token引用，与请求同生命周期；放入缓存时使用{@link #copyOf(UserDetails)}，不保留token。
+ */
+public final class ImmutableUserDetails implements UserDetails {
+    private static final String[] EMPTY = new String[0];
+
+    private final String uid;
+    private final String name;
+    private final String[] roles;
+    private final Map<String, String> attributes;
+    private final transient String token;
+
+    private ImmutableUserDetails(String uid, String name, String[] roles, String[] attributes, String token) {
+        this.uid = uid;
+        this.name = name;
+        this.roles = roles;
+        this.attributes = attributes.length == 0 ? Map.of() : new FlatMap(attributes);
+        this.token = token;
+    }
+
+    /**
+     * 复制用户信息，不保留token
+     *
+     * @param userDetails 用户信息
+     * @return 不可变用户信息
+     */
+    public static ImmutableUserDetails copyOf(UserDetails userDetails) {
+        if (userDetails instanceof ImmutableUserDetails && userDetails.getToken() == null) {
+            return (ImmutableUserDetails) userDetails;
+        }
+        return of(userDetails.getUid(), userDetails.getName(), userDetails.getRoles(), userDetails.getAttributes());
+    }
+
+    public static ImmutableUserDetails of(String uid, String name, String[] roles, Map<String, String> attributes) {
+        return of(uid, name, roles, attributes, null);
+    }
+
+    public static ImmutableUserDetails of(String uid, String name, String[] roles, Map<String, String> attributes, String token) {
+        String[] sortedRoles = EMPTY;
+        if (roles != null && roles.length > 0) {
+            sortedRoles = Arrays.stream(roles).map(String::intern).distinct().sorted().toArray(String[]::new);
+        }
+        String[] flatAttributes = EMPTY;
+        if (attributes != null && !attributes.isEmpty()) {
+            flatAttributes = new String[attributes.size() * 2];
+            int i = 0;
+            for (Map.Entry<String, String> entry : attributes.entrySet()) {
+                flatAttributes[i++] = entry.getKey();
+                flatAttributes[i++] = entry.getValue();
+            }
+        }
+        return new ImmutableUserDetails(uid, name, sortedRoles, flatAttributes, token);
+    }
+
+    @Override
+    public String getUid() {
+        return uid;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String[] getRoles() {
+        return roles;
+    }
+
+    @Override
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public String getToken() {
+        return token;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ImmutableUserDetails)) {
+            return false;
+        }
+        ImmutableUserDetails that = (ImmutableUserDetails) o;
+        return Objects.equals(uid, that.uid)
+                && Objects.equals(name, that.name)
+                && Arrays.equals(roles, that.roles)
+                && attributes.equals(that.attributes);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(uid, name, attributes);
+        return 31 * result + Arrays.hashCode(roles);
+    }
+
+    @Override
+    public String toString() {
+        return "ImmutableUserDetails(uid=" + uid + ", name=" + name + ", roles=" + Arrays.toString(roles)
+                + ", attributes=" + attributes + ")";
+    }
+
+    /**
+     * 键值交替保存的只读Map，属性数量通常很少，按顺序查找
+     */
+    private static class FlatMap extends AbstractMap<String, String> {
+        private final String[] entries;
+        private final Set<Entry<String, String>> entrySet = new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new Iterator<>() {
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < entries.length;
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<String, String> entry = new SimpleImmutableEntry<>(entries[index], entries[index + 1]);
+                        index += 2;
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return entries.length >>> 1;
+            }
+        };
+
+        private FlatMap(String[] entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public String get(Object key) {
+            int index = indexOf(key);
+            return index < 0 ? null : entries[index + 1];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return entries.length >>> 1;
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return entrySet;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < entries.length; i += 2) {
+                if (Objects.equals(entries[i], key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
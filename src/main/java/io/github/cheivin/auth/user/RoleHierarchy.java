@@ -0,0 +1,263 @@
+package io.github.cheivin.auth.user;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 角色继承关系
+ * <p>
+ * 定义格式为每行一条或多条继承关系，如{@code ADMIN > MANAGER > NORMAL}，{@code #}开头为注释。
+ * 加载时计算传递闭包，每个角色的有效角色集合保存为位图，判断继承角色只需按位测试。
+ * 从文件加载时可定时检查文件修改并热更新。
+ */
+@Slf4j
+public class RoleHierarchy implements Closeable {
+    private static final String SEPARATOR = ">";
+    /**
+     * 文件不可访问时记录的修改时间
+     */
+    private static final long UNAVAILABLE = Long.MIN_VALUE;
+
+    private final Path path;
+    private volatile Snapshot snapshot;
+    private volatile long lastModified;
+    private ScheduledExecutorService watcher;
+
+    private RoleHierarchy(Snapshot snapshot, Path path) {
+        this.snapshot = snapshot;
+        this.path = path;
+    }
+
+    /**
+     * 由定义文本创建
+     *
+     * @param definition 继承关系定义
+     * @return 角色继承关系
+     */
+    public static RoleHierarchy of(String definition) {
+        return new RoleHierarchy(Snapshot.parse(definition), null);
+    }
+
+    /**
+     * 由文件创建
+     *
+     * @param path 定义文件
+     * @return 角色继承关系
+     * @throws IOException 读取失败
+     */
+    public static RoleHierarchy fromFile(Path path) throws IOException {
+        RoleHierarchy hierarchy = new RoleHierarchy(Snapshot.EMPTY, path);
+        hierarchy.lastModified = Files.getLastModifiedTime(path).toMillis();
+        hierarchy.snapshot = Snapshot.parse(Files.readString(path, StandardCharsets.UTF_8));
+        return hierarchy;
+    }
+
+    /**
+     * 替换继承关系定义
+     *
+     * @param definition 继承关系定义
+     */
+    public void reload(String definition) {
+        this.snapshot = Snapshot.parse(definition);
+    }
+
+    /**
+     * 文件修改后重新加载，读取或解析失败时保留原定义
+     * <p>
+     * 失败的修改时间同样记录，文件未再修改前不重复解析，每次修改只告警一次
+     *
+     * @return 是否重新加载
+     */
+    public boolean reloadIfModified() {
+        if (path == null) {
+            return false;
+        }
+        long modified;
+        try {
+            modified = Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            if (lastModified != UNAVAILABLE) {
+                lastModified = UNAVAILABLE;
+                log.warn("Role hierarchy file {} is unavailable, keep previous definition: {}", path, e.toString());
+            }
+            return false;
+        }
+        if (modified == lastModified) {
+            return false;
+        }
+        lastModified = modified;
+        try {
+            reload(Files.readString(path, StandardCharsets.UTF_8));
+            log.info("Role hierarchy reloaded from {}", path);
+            return true;
+        } catch (IOException | UncheckedIOException | IllegalArgumentException e) {
+            log.warn("Role hierarchy reload from {} failed, keep previous definition: {}", path, e.toString());
+            return false;
+        }
+    }
+
+    /**
+     * 定时检查定义文件修改
+     *
+     * @param interval 检查间隔
+     */
+    public synchronized void startWatching(Duration interval) {
+        if (path == null || watcher != null) {
+            return;
+        }
+        watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "auth-role-hierarchy-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        watcher.scheduleWithFixedDelay(this::reloadIfModified, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+            watcher = null;
+        }
+    }
+
+    /**
+     * 持有的角色是否包含指定角色，包括继承得到的角色
+     *
+     * @param roles 持有的角色
+     * @param role  指定角色
+     * @return 是否包含
+     */
+    public boolean hasRole(String[] roles, String role) {
+        Snapshot current = this.snapshot;
+        Integer target = current.index.get(role);
+        for (String held : roles) {
+            if (held.equals(role)) {
+                return true;
+            }
+            if (target != null) {
+                Integer source = current.index.get(held);
+                if (source != null && current.contains(source, target)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 角色的有效角色集合，包括自身
+     *
+     * @param role 角色
+     * @return 有效角色
+     */
+    public Set<String> getReachableRoles(String role) {
+        Snapshot current = this.snapshot;
+        Integer source = current.index.get(role);
+        if (source == null) {
+            return Collections.singleton(role);
+        }
+        Set<String> reachable = new LinkedHashSet<>();
+        for (int i = 0; i < current.roles.length; i++) {
+            if (current.contains(source, i)) {
+                reachable.add(current.roles[i]);
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * 不可变的闭包快照
+     */
+    private static class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(Collections.emptyMap(), new String[0], new long[0][]);
+
+        private final Map<String, Integer> index;
+        private final String[] roles;
+        /**
+         * closure[i]为角色i的有效角色位图
+         */
+        private final long[][] closure;
+
+        private Snapshot(Map<String, Integer> index, String[] roles, long[][] closure) {
+            this.index = index;
+            this.roles = roles;
+            this.closure = closure;
+        }
+
+        private boolean contains(int source, int target) {
+            return (closure[source][target >>> 6] & (1L << target)) != 0;
+        }
+
+        private static Snapshot parse(String definition) {
+            Map<String, Integer> index = new HashMap<>();
+            List<String> roles = new ArrayList<>();
+            List<int[]> edges = new ArrayList<>();
+            for (String line : definition.split("\\R")) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] chain = line.split(SEPARATOR);
+                if (chain.length < 2) {
+                    throw new IllegalArgumentException("Invalid role hierarchy definition: " + line);
+                }
+                int previous = -1;
+                for (String part : chain) {
+                    String role = part.trim();
+                    if (role.isEmpty()) {
+                        throw new IllegalArgumentException("Invalid role hierarchy definition: " + line);
+                    }
+                    int current = index.computeIfAbsent(role, key -> {
+                        roles.add(key);
+                        return roles.size() - 1;
+                    });
+                    if (previous >= 0) {
+                        edges.add(new int[]{previous, current});
+                    }
+                    previous = current;
+                }
+            }
+            int size = roles.size();
+            int words = (size + 63) >>> 6;
+            long[][] closure = new long[size][words];
+            for (int i = 0; i < size; i++) {
+                closure[i][i >>> 6] |= 1L << i;
+            }
+            // 迭代合并直到不再变化，角色数量有限，启动及重载时计算一次
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int[] edge : edges) {
+                    long[] from = closure[edge[0]], to = closure[edge[1]];
+                    for (int w = 0; w < words; w++) {
+                        long merged = from[w] | to[w];
+                        if (merged != from[w]) {
+                            from[w] = merged;
+                            changed = true;
+                        }
+                    }
+                }
+            }
+            return new Snapshot(Map.copyOf(index), roles.toArray(new String[0]), closure);
+        }
+    }
+}
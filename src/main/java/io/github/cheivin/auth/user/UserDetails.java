@@ -1,57 +1,42 @@
 package io.github.cheivin.auth.user;
 
-import lombok.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 import java.security.Principal;
-import java.util.HashMap;
 import java.util.Map;
 
 /**
- *
+ * 用户信息
+ * <p>
+ * 可变实现为{@link DefaultUserDetails}，缓存及高频读取使用{@link ImmutableUserDetails}；
+ * 角色判断需考虑继承关系，使用{@link UserDetailsHolder#hasRole(String)}
  */
-@Data
-@Builder
-@NoArgsConstructor
-@AllArgsConstructor
-@ToString
-public class UserDetails implements Principal {
+@JsonDeserialize(as = DefaultUserDetails.class)
+public interface UserDetails extends Principal {
+
+    static DefaultUserDetails.DefaultUserDetailsBuilder builder() {
+        return DefaultUserDetails.builder();
+    }
+
     /**
      * 用户ID
      */
-    private String uid;
-    /**
-     * 用户名称
-     */
-    private String name;
+    String getUid();
+
     /**
-     * 角色身份
+     * 角色身份，不为null
      */
-    private String[] roles;
+    String[] getRoles();
+
     /**
-     * 属性
+     * 属性，不为null
      */
-    private Map<String, String> attributes;
+    Map<String, String> getAttributes();
+
     /**
-     * 当前token
+     * 当前token，未保留时为null；不写入签发的token
      */
-    private transient String token;
-
-    public String[] getRoles() {
-        if (roles == null) {
-            return new String[0];
-        }
-        return roles;
-    }
-
-    public Map<String, String> getAttributes() {
-        if (attributes == null) {
-            return new HashMap<>(0);
-        }
-        return attributes;
-    }
-
-    @Override
-    public String getName() {
-        return this.name;
-    }
+    @JsonIgnore
+    String getToken();
 }
@@ -7,6 +7,10 @@ import java.util.Optional;
  */
 public class UserDetailsHolder {
     private static final InheritableThreadLocal<UserDetails> currUser = new InheritableThreadLocal<>();
+    /**
+     * 角色继承关系，默认无继承
+     */
+    private static volatile RoleHierarchy roleHierarchy = RoleHierarchy.of("");
 
     /**
      * 获取当前用户
@@ -25,15 +29,16 @@ public class UserDetailsHolder {
         currUser.remove();
     }
 
+    public static RoleHierarchy getRoleHierarchy() {
+        return roleHierarchy;
+    }
+
+    public static void setRoleHierarchy(RoleHierarchy roleHierarchy) {
+        UserDetailsHolder.roleHierarchy = roleHierarchy == null ? RoleHierarchy.of("") : roleHierarchy;
+    }
+
     public static boolean hasRole(String role) {
-        if (currentUser().isPresent()) {
-            UserDetails details = currentUser().get();
-            for (String detailsRole : details.getRoles()) {
-                if (detailsRole.equals(role)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        UserDetails details = currUser.get();
+        return details != null && roleHierarchy.hasRole(details.getRoles(), role);
     }
 }
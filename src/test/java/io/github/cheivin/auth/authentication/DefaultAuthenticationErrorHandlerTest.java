@@ -0,0 +1,78 @@
+package io.github.cheivin.auth.authentication;
+
+import io.github.cheivin.auth.exception.TokenExpiredException;
+import io.github.cheivin.auth.exception.TokenInvalidException;
+import io.github.cheivin.auth.exception.TokenNotPresentException;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DefaultAuthenticationErrorHandlerTest {
+
+    @Test
+    void onlyExpectedRejectionsAreStackless() {
+        assertThat(new TokenInvalidException("t", "bad signature").getStackTrace()).isNotEmpty();
+        assertThat(new TokenExpiredException("t", new Date()).getStackTrace()).isEmpty();
+        assertThat(TokenNotPresentException.INSTANCE.getStackTrace()).isEmpty();
+    }
+
+    @Test
+    void writesPreformattedBody() throws Exception {
+        DefaultAuthenticationErrorHandler handler = new DefaultAuthenticationErrorHandler(0);
+        try {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            handler.onTokenExpired(new MockHttpServletRequest(), response, new TokenExpiredException("t", new Date()));
+            assertThat(response.getStatus()).isEqualTo(401);
+            assertThat(response.getContentAsString()).contains("\"message\":\"token expired\"");
+        } finally {
+            handler.destroy();
+        }
+    }
+
+    @Test
+    void logWindowAdmitsAtMostLimitPerSecond() throws Exception {
+        assertThat(acquired(new DefaultAuthenticationErrorHandler(0), 1, 100)).isZero();
+        // 最多跨越一次秒边界
+        assertThat(acquired(new DefaultAuthenticationErrorHandler(10), 8, 1000)).isBetween(10, 20);
+    }
+
+    private static int acquired(DefaultAuthenticationErrorHandler handler, int threads, int perThread) throws Exception {
+        AtomicInteger acquired = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        if (Boolean.TRUE.equals(ReflectionTestUtils.invokeMethod(handler, "tryAcquire"))) {
+                            acquired.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+            handler.destroy();
+        }
+        return acquired.get();
+    }
+}
@@ -0,0 +1,129 @@
+package io.github.cheivin.auth.authorization;
+
+import io.github.cheivin.auth.annotation.AuthPoint;
+import io.github.cheivin.auth.exception.UnauthorizedException;
+import io.github.cheivin.auth.user.ImmutableUserDetails;
+import io.github.cheivin.auth.user.UserDetailsHolder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.core.MethodClassKey;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AuthorizationRuleTest {
+    private final AtomicInteger granted = new AtomicInteger();
+    private final AuthorizationManager manager = new AuthorizationManager((namespace, privilege, checkPoint) -> {
+        granted.incrementAndGet();
+        return true;
+    });
+    private final Documents documents = proxy(new Documents());
+
+    public static class Documents {
+        @AuthPoint(rule = "hasRole('MANAGER') and #args[0] == user.uid")
+        public String edit(String owner) throws UnauthorizedException {
+            return owner;
+        }
+
+        @AuthPoint
+        public void bare() {
+        }
+    }
+
+    public static class Reports {
+        @AuthPoint(privilege = "read", rule = "hasRole('AUDITOR')")
+        public void read() {
+        }
+    }
+
+    private Documents proxy(Documents target) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(manager);
+        return factory.getProxy();
+    }
+
+    private static void login(String uid, String... roles) {
+        UserDetailsHolder.init(ImmutableUserDetails.of(uid, uid, roles, Collections.emptyMap()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        UserDetailsHolder.invalid();
+    }
+
+    @Test
+    void ruleWithArgsAndRoleAllowsAndDenies() throws Exception {
+        login("alice", "MANAGER");
+        assertThat(documents.edit("alice")).isEqualTo("alice");
+        assertThatThrownBy(() -> documents.edit("bob")).isInstanceOf(UnauthorizedException.class);
+
+        login("alice", "NORMAL");
+        assertThatThrownBy(() -> documents.edit("alice")).isInstanceOf(UnauthorizedException.class);
+
+        UserDetailsHolder.invalid();
+        assertThatThrownBy(() -> documents.edit("alice")).isInstanceOf(UnauthorizedException.class);
+        // 只有规则时不调用授权器
+        assertThat(granted).hasValue(0);
+    }
+
+    @Test
+    void ruleIsParsedOnceAndStaysCorrectAfterCompilation() throws Exception {
+        login("alice", "MANAGER");
+        documents.edit("alice");
+        Map<?, ?> points = (Map<?, ?>) ReflectionTestUtils.getField(manager, "points");
+        Object point = points.values().iterator().next();
+        Object rule = ReflectionTestUtils.getField(point, "rule");
+
+        // 超过混合模式的编译阈值后结果不变
+        for (int i = 0; i < 500; i++) {
+            assertThat(documents.edit("alice")).isEqualTo("alice");
+            assertThatThrownBy(() -> documents.edit("bob")).isInstanceOf(UnauthorizedException.class);
+        }
+        assertThat(points).hasSize(1);
+        assertThat(points.values().iterator().next()).isSameAs(point);
+        assertThat(ReflectionTestUtils.getField(point, "rule")).isSameAs(rule);
+    }
+
+    @Test
+    void bareAuthPointIsRejected() throws Exception {
+        assertThatThrownBy(() -> AuthorizationPoint.resolve(Documents.class, Documents.class.getMethod("bare")))
+                .isInstanceOf(IllegalArgumentException.class);
+        login("alice", "MANAGER");
+        assertThatThrownBy(documents::bare).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void bareAuthPointFailsStartup() {
+        new ApplicationContextRunner()
+                .withBean(AuthorizationManager.class, () -> manager)
+                .withBean(Documents.class)
+                .run(context -> assertThat(context).getFailure()
+                        .hasRootCauseInstanceOf(IllegalArgumentException.class)
+                        .isInstanceOf(BeanInitializationException.class)
+                        .hasMessageContaining("'authorizationRuleTest.Documents'")
+                        .hasMessageContaining("requires a privilege or a rule"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void pointsAreResolvedAtStartupWithoutInitializingLazyBeans() {
+        new ApplicationContextRunner()
+                .withBean(AuthorizationManager.class, () -> manager)
+                .withBean(Reports.class, Reports::new, definition -> definition.setLazyInit(true))
+                .run(context -> {
+                    assertThat(context).hasNotFailed();
+                    assertThat(context.getBeanFactory().containsSingleton("authorizationRuleTest.Reports")).isFalse();
+                    Map<Object, Object> points = (Map<Object, Object>) ReflectionTestUtils.getField(manager, "points");
+                    assertThat(points).containsOnlyKeys(new MethodClassKey(Reports.class.getMethod("read"), Reports.class));
+                });
+    }
+}
@@ -0,0 +1,211 @@
+package io.github.cheivin.auth.autoconfigure;
+
+import io.github.cheivin.auth.authentication.AuthenticationErrorHandler;
+import io.github.cheivin.auth.authentication.AuthenticationManager;
+import io.github.cheivin.auth.authentication.DefaultAuthenticationErrorHandler;
+import io.github.cheivin.auth.authorization.AuthorizationGranter;
+import io.github.cheivin.auth.authorization.AuthorizationManager;
+import io.github.cheivin.auth.authorization.RouteAuthorizationFilter;
+import io.github.cheivin.auth.metrics.AuthMetrics;
+import io.github.cheivin.auth.metrics.MicrometerAuthMetrics;
+import io.github.cheivin.auth.token.JwtTokenStore;
+import io.github.cheivin.auth.token.TenantRoutingTokenStore;
+import io.github.cheivin.auth.token.TenantTokenStoreFactory;
+import io.github.cheivin.auth.token.TokenStore;
+import io.github.cheivin.auth.trace.AuthTracer;
+import io.github.cheivin.auth.trace.RingBufferAuthTracer;
+import io.github.cheivin.auth.user.RoleHierarchy;
+import io.github.cheivin.auth.user.UserDetails;
+import io.github.cheivin.auth.user.UserDetailsHolder;
+import io.github.cheivin.auth.user.UserDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.FilteredClassLoader;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.test.context.runner.WebApplicationContextRunner;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuthAutoConfigurationTest {
+    private static final UserDetailsService USERS = new UserDetailsService() {
+        @Override
+        public Optional<UserDetails> loadUserDetailsByUid(String uid) {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<UserDetails> loadUserDetailsByToken(String token) {
+            return Optional.empty();
+        }
+    };
+    private static final AuthorizationGranter GRANTER = (namespace, privilege, checkPoint) -> true;
+
+    private final WebApplicationContextRunner runner = new WebApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(AuthTokenStoreAutoConfiguration.class, AuthAutoConfiguration.class))
+            .withBean(UserDetailsService.class, () -> USERS);
+
+    @SuppressWarnings("unchecked")
+    private static AuthenticationManager authenticationManager(ApplicationContext context) {
+        return ((FilterRegistrationBean<AuthenticationManager>) context.getBean("authenticationManager")).getFilter();
+    }
+
+    private static Object filterField(ApplicationContext context, String name) {
+        return ReflectionTestUtils.getField(ReflectionTestUtils.getField(authenticationManager(context), "filter"), name);
+    }
+
+    @Test
+    void defaultContextCreatesOnlyTokenStoreAndAuthentication() {
+        runner.withPropertyValues("auth.token.secret=auto-config-secret", "auth.token.access-expire=60")
+                .run(context -> {
+                    assertThat(context).hasNotFailed();
+                    assertThat(context).hasSingleBean(JwtTokenStore.class);
+                    assertThat(context).hasBean("authenticationManager");
+                    assertThat(ReflectionTestUtils.getField(context.getBean(JwtTokenStore.class), "accessExpire")).isEqualTo(60L);
+                    assertThat(filterField(context, "errorHandler")).isInstanceOf(DefaultAuthenticationErrorHandler.class);
+                    assertThat(filterField(context, "throttle")).isNull();
+                    assertThat(filterField(context, "renewer")).isNull();
+                    assertThat(context).doesNotHaveBean(AuthMetrics.class);
+                    assertThat(context).doesNotHaveBean(AuthTracer.class);
+                    assertThat(context).doesNotHaveBean(RoleHierarchy.class);
+                    assertThat(context).doesNotHaveBean(AuthorizationManager.class);
+                    assertThat(context).doesNotHaveBean(RouteAuthorizationFilter.class);
+                });
+    }
+
+    @Test
+    void withoutSecretNothingIsAuthenticated() {
+        runner.run(context -> {
+            assertThat(context).hasNotFailed();
+            assertThat(context).doesNotHaveBean(TokenStore.class);
+            assertThat(context).doesNotHaveBean("authenticationManager");
+        });
+    }
+
+    @Test
+    void authenticationNeedsServletApplication() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(AuthTokenStoreAutoConfiguration.class, AuthAutoConfiguration.class))
+                .withBean(UserDetailsService.class, () -> USERS)
+                .withPropertyValues("auth.token.secret=auto-config-secret")
+                .run(context -> {
+                    assertThat(context).hasSingleBean(JwtTokenStore.class);
+                    assertThat(context).doesNotHaveBean("authenticationManager");
+                });
+    }
+
+    @Test
+    void authenticationCanBeDisabled() {
+        runner.withPropertyValues("auth.token.secret=auto-config-secret", "auth.authentication.enabled=false")
+                .run(context -> assertThat(context).doesNotHaveBean("authenticationManager"));
+    }
+
+    @Test
+    void meterRegistryEnablesMetrics() {
+        runner.withPropertyValues("auth.token.secret=auto-config-secret")
+                .withBean(SimpleMeterRegistry.class)
+                .run(context -> {
+                    assertThat(context).getBean(AuthMetrics.class).isInstanceOf(MicrometerAuthMetrics.class);
+                    AuthMetrics metrics = context.getBean(AuthMetrics.class);
+                    assertThat(ReflectionTestUtils.getField(context.getBean(JwtTokenStore.class), "metrics")).isSameAs(metrics);
+                    assertThat(filterField(context, "metrics")).isSameAs(metrics);
+                });
+    }
+
+    @Test
+    void worksWithoutMicrometerOnClasspath() {
+        runner.withPropertyValues("auth.token.secret=auto-config-secret")
+                .withClassLoader(new FilteredClassLoader(MeterRegistry.class))
+                .run(context -> {
+                    assertThat(context).hasNotFailed();
+                    assertThat(context).doesNotHaveBean(AuthMetrics.class);
+                    assertThat(filterField(context, "metrics")).isSameAs(AuthMetrics.NOOP);
+                });
+    }
+
+    @Test
+    void tenantFactoryEnablesTenantRouting() {
+        runner.withPropertyValues("auth.token.secret=auto-config-secret", "auth.tenant.max-tenants=5",
+                        "auth.tenant.allowed-tenants=a,b")
+                .withBean(TenantTokenStoreFactory.class, () -> tenant -> Optional.empty())
+                .run(context -> {
+                    assertThat(context).getBean(TokenStore.class).isInstanceOf(TenantRoutingTokenStore.class);
+                    assertThat(context).doesNotHaveBean(JwtTokenStore.class);
+                    assertThat(context).hasBean("authenticationManager");
+                    TenantRoutingTokenStore store = context.getBean(TenantRoutingTokenStore.class);
+                    assertThat(ReflectionTestUtils.getField(store, "maxTenants")).isEqualTo(5);
+                    assertThat(ReflectionTestUtils.getField(store, "allowedTenants")).asString().contains("a", "b");
+                });
+    }
+
+    @Test
+    void userBeansTakePrecedence() {
+        TokenStore tokenStore = JwtTokenStore.builder("user-secret").build();
+        AuthMetrics metrics = AuthMetrics.NOOP;
+        AuthenticationErrorHandler errorHandler = (request, response, e) -> response.setStatus(418);
+        RoleHierarchy hierarchy = RoleHierarchy.of("ADMIN > USER");
+        runner.withPropertyValues("auth.token.secret=auto-config-secret", "auth.role-hierarchy.definition=A > B")
+                .withBean(SimpleMeterRegistry.class)
+                .withBean(TokenStore.class, () -> tokenStore)
+                .withBean(AuthMetrics.class, () -> metrics)
+                .withBean(AuthenticationErrorHandler.class, () -> errorHandler)
+                .withBean(RoleHierarchy.class, () -> hierarchy)
+                .run(context -> {
+                    assertThat(context).getBean(TokenStore.class).isSameAs(tokenStore);
+                    assertThat(context).getBean(AuthMetrics.class).isSameAs(metrics);
+                    assertThat(context).getBean(RoleHierarchy.class).isSameAs(hierarchy);
+                    assertThat(filterField(context, "errorHandler")).isSameAs(errorHandler);
+                    assertThat(UserDetailsHolder.getRoleHierarchy()).isSameAs(hierarchy);
+                });
+        assertThat(UserDetailsHolder.getRoleHierarchy()).isNotSameAs(hierarchy);
+    }
+
+    @Test
+    void optionalPartsFollowProperties() {
+        runner.withPropertyValues("auth.token.secret=auto-config-secret",
+                        "auth.trace.enabled=true",
+                        "auth.role-hierarchy.definition=ADMIN > USER",
+                        "auth.authentication.throttle.enabled=true",
+                        "auth.authentication.sliding-session.enabled=true")
+                .run(context -> {
+                    assertThat(context).getBean(AuthTracer.class).isInstanceOf(RingBufferAuthTracer.class);
+                    assertThat(context).hasSingleBean(RoleHierarchy.class);
+                    assertThat(UserDetailsHolder.getRoleHierarchy()).isSameAs(context.getBean(RoleHierarchy.class));
+                    assertThat(filterField(context, "throttle")).isNotNull();
+                    assertThat(filterField(context, "renewer")).isNotNull();
+                    assertThat(filterField(context, "tracer")).isSameAs(context.getBean(AuthTracer.class));
+                });
+    }
+
+    @Test
+    void granterEnablesAuthorization() {
+        runner.withBean(AuthorizationGranter.class, () -> GRANTER)
+                .run(context -> {
+                    assertThat(context).hasSingleBean(AuthorizationManager.class);
+                    assertThat(context).doesNotHaveBean(RouteAuthorizationFilter.class);
+                });
+        runner.withBean(AuthorizationGranter.class, () -> GRANTER)
+                .withPropertyValues("auth.authorization.enabled=false")
+                .run(context -> assertThat(context).doesNotHaveBean(AuthorizationManager.class));
+        runner.withBean(AuthorizationGranter.class, () -> GRANTER)
+                .withPropertyValues("auth.authorization.route.enabled=true")
+                .run(context -> {
+                    assertThat(context).hasSingleBean(RouteAuthorizationFilter.class);
+                    assertThat(context).hasBean("routeAuthorizationFilterRegistration");
+                });
+    }
+
+    @Test
+    void userAuthorizationManagerTakesPrecedence() {
+        AuthorizationManager manager = new AuthorizationManager(GRANTER);
+        runner.withBean(AuthorizationGranter.class, () -> GRANTER)
+                .withBean(AuthorizationManager.class, () -> manager)
+                .run(context -> assertThat(context).getBean(AuthorizationManager.class).isSameAs(manager));
+    }
+}
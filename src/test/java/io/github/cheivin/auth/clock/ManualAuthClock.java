@@ -0,0 +1,41 @@
+package io.github.cheivin.auth.clock;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 手动控制的时间源，用于测试过期边界
+ */
+public class ManualAuthClock implements AuthClock {
+    /**
+     * 测试共用的起始时间
+     */
+    public static final Instant START = Instant.parse("2021-01-01T00:00:00Z");
+
+    private final AtomicLong millis;
+
+    /**
+     * 从{@link #START}开始
+     */
+    public ManualAuthClock() {
+        this(START);
+    }
+
+    public ManualAuthClock(Instant instant) {
+        this.millis = new AtomicLong(instant.toEpochMilli());
+    }
+
+    @Override
+    public long millis() {
+        return millis.get();
+    }
+
+    public void set(Instant instant) {
+        millis.set(instant.toEpochMilli());
+    }
+
+    public void advance(Duration duration) {
+        millis.addAndGet(duration.toMillis());
+    }
+}
@@ -0,0 +1,44 @@
+package io.github.cheivin.auth.filter;
+
+import io.github.cheivin.auth.token.JwtTokenStore;
+import io.github.cheivin.auth.user.ImmutableUserDetails;
+import io.github.cheivin.auth.user.UserDetails;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlidingSessionRenewerTest {
+    private final JwtTokenStore tokenStore = JwtTokenStore.builder("renewer-test-secret").build();
+    private final SlidingSessionRenewer renewer = SlidingSessionRenewer.builder(tokenStore).build();
+
+    private static UserDetails user(String uid, String tenant) {
+        return ImmutableUserDetails.of(uid, uid, new String[]{"USER"}, Collections.singletonMap("tenant", tenant));
+    }
+
+    private String renew(UserDetails userDetails) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        renewer.renew(response, userDetails, 10);
+        return response.getHeader("X-Access-Token");
+    }
+
+    @Test
+    void reusesTokenOnlyForSameIdentity() throws Exception {
+        String first = renew(user("1", "a"));
+        assertThat(first).isNotNull();
+        assertThat(renew(user("1", "a"))).isEqualTo(first);
+
+        String otherTenant = renew(user("1", "b"));
+        assertThat(otherTenant).isNotNull().isNotEqualTo(first);
+        assertThat(tokenStore.getUserDetailsByToken(otherTenant).getAttributes()).containsEntry("tenant", "b");
+    }
+
+    @Test
+    void skipsTokensAboveThreshold() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        renewer.renew(response, user("1", "a"), 7200);
+        assertThat(response.getHeader("X-Access-Token")).isNull();
+    }
+}
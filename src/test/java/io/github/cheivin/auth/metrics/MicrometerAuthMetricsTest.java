@@ -0,0 +1,99 @@
+package io.github.cheivin.auth.metrics;
+
+import io.github.cheivin.auth.annotation.AuthPoint;
+import io.github.cheivin.auth.authorization.AuthorizationManager;
+import io.github.cheivin.auth.exception.TokenInvalidException;
+import io.github.cheivin.auth.exception.UnauthorizedException;
+import io.github.cheivin.auth.metrics.AuthMetrics.Outcome;
+import io.github.cheivin.auth.metrics.AuthMetrics.Stage;
+import io.github.cheivin.auth.token.AuthenticationToken;
+import io.github.cheivin.auth.token.JwtTokenStore;
+import io.github.cheivin.auth.user.ImmutableUserDetails;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MicrometerAuthMetricsTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MicrometerAuthMetrics metrics = new MicrometerAuthMetrics(registry);
+
+    public static class Documents {
+        @AuthPoint(privilege = "read")
+        public void read() throws UnauthorizedException {
+        }
+    }
+
+    private long count(Stage stage, Outcome outcome) {
+        Timer timer = registry.find(stage.getMetricName()).tag("outcome", outcome.getTag()).timer();
+        assertThat(timer).as("%s{outcome=%s}", stage.getMetricName(), outcome.getTag()).isNotNull();
+        return timer.count();
+    }
+
+    private static ImmutableUserDetails user() {
+        return ImmutableUserDetails.of("u1", "u1", new String[]{"USER"}, Collections.emptyMap());
+    }
+
+    @Test
+    void onlyDeclaredPairsAreRegistered() {
+        int declared = Arrays.stream(Stage.values()).mapToInt(stage -> stage.getOutcomes().size()).sum();
+        assertThat(registry.getMeters()).hasSize(declared);
+        assertThat(registry.find(Stage.TOKEN_CREATE.getMetricName()).tag("outcome", Outcome.EXPIRED.getTag()).timer()).isNull();
+        assertThat(registry.find(Stage.USER_LOAD.getMetricName()).tag("outcome", Outcome.THROTTLED.getTag()).timer()).isNull();
+
+        // 未声明的组合直接忽略
+        metrics.record(Stage.TOKEN_CREATE, Outcome.EXPIRED, metrics.start());
+        assertThat(registry.getMeters()).hasSize(declared);
+    }
+
+    @Test
+    void strictAudienceRejectionIsRecordedAsInvalid() throws Exception {
+        JwtTokenStore tokenStore = JwtTokenStore.builder("metrics-test-secret").setMetrics(metrics).build();
+        AuthenticationToken token = tokenStore.createToken(user());
+        assertThat(count(Stage.TOKEN_CREATE, Outcome.OK)).isEqualTo(1);
+
+        assertThatThrownBy(() -> tokenStore.verifyAccessToken(token.getRefreshToken().getToken()))
+                .isInstanceOf(TokenInvalidException.class);
+        assertThat(count(Stage.TOKEN_PARSE, Outcome.INVALID)).isEqualTo(1);
+        assertThat(count(Stage.TOKEN_PARSE, Outcome.OK)).isZero();
+
+        assertThatThrownBy(() -> tokenStore.refreshToken(token.getAccessToken().getToken(), user()))
+                .isInstanceOf(TokenInvalidException.class);
+        assertThat(count(Stage.TOKEN_PARSE, Outcome.INVALID)).isEqualTo(2);
+        assertThat(count(Stage.TOKEN_REFRESH, Outcome.INVALID)).isEqualTo(1);
+
+        tokenStore.verifyAccessToken(token.getAccessToken().getToken());
+        tokenStore.refreshToken(token.getRefreshToken().getToken(), user());
+        assertThat(count(Stage.TOKEN_PARSE, Outcome.OK)).isEqualTo(2);
+        assertThat(count(Stage.TOKEN_REFRESH, Outcome.OK)).isEqualTo(1);
+    }
+
+    @Test
+    void authorizationIsRecordedWhenGranterThrows() throws Exception {
+        boolean[] fail = {true};
+        AuthorizationManager manager = new AuthorizationManager((namespace, privilege, checkPoint) -> {
+            if (fail[0]) {
+                throw new IllegalStateException("granter unavailable");
+            }
+            return false;
+        }, metrics);
+        AspectJProxyFactory factory = new AspectJProxyFactory(new Documents());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(manager);
+        Documents documents = factory.getProxy();
+
+        assertThatThrownBy(documents::read).isInstanceOf(IllegalStateException.class);
+        assertThat(count(Stage.AUTHORIZATION, Outcome.ERROR)).isEqualTo(1);
+
+        fail[0] = false;
+        assertThatThrownBy(documents::read).isInstanceOf(UnauthorizedException.class);
+        assertThat(count(Stage.AUTHORIZATION, Outcome.UNAUTHORIZED)).isEqualTo(1);
+        assertThat(count(Stage.AUTHORIZATION, Outcome.OK)).isZero();
+    }
+}
@@ -0,0 +1,196 @@
+package io.github.cheivin.auth.stress;
+
+import io.github.cheivin.auth.annotation.AuthPoint;
+import io.github.cheivin.auth.authorization.AuthorizationGranter;
+import io.github.cheivin.auth.exception.UnauthorizedException;
+import io.github.cheivin.auth.token.JwtTokenStore;
+import io.github.cheivin.auth.token.TokenStore;
+import io.github.cheivin.auth.user.ImmutableUserDetails;
+import io.github.cheivin.auth.user.UserDetails;
+import io.github.cheivin.auth.user.UserDetailsHolder;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 认证授权过滤链压测
+ * <p>
+ * 在内嵌容器中运行自动配置的{@code AuthenticationManager}和{@code AuthorizationManager}，按比例混合发送
+ * 有效(缓存命中/未命中)、过期、无效及缺失token的请求，输出吞吐量和延迟分布，并校验每个响应与请求用户一致。
+ * <p>
+ * 可通过系统属性调整：auth.stress.threads、auth.stress.warmup、auth.stress.duration(秒)、
+ * auth.stress.mix(如 VALID_HOT=60,VALID_COLD=20,EXPIRED=7,INVALID=7,MISSING=6)、auth.stress.coldLoadMicros
+ */
+@Tag("stress")
+@SpringBootTest(classes = AuthenticationLoadTest.StressApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "auth.token.secret=" + AuthenticationLoadTest.SECRET,
+                "logging.level.io.github.cheivin.auth=ERROR"
+        })
+class AuthenticationLoadTest {
+    static final String SECRET = "stress-test-secret";
+    private static final String DEFAULT_MIX = "VALID_HOT=60,VALID_COLD=20,EXPIRED=7,INVALID=7,MISSING=6";
+    private static final int HOT_USERS = 64;
+    private static final int COLD_USERS = 5000;
+    private static final int BAD_TOKENS = 64;
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private TokenStore tokenStore;
+    @Autowired
+    private StressUserDetailsService userDetailsService;
+
+    @Test
+    void mixedLoad() throws InterruptedException {
+        URI uri = URI.create("http://localhost:" + port + "/stress/whoami");
+        Map<String, String> uids = new HashMap<>();
+        HttpRequest[] hot = new HttpRequest[HOT_USERS];
+        for (int i = 0; i < hot.length; i++) {
+            UserDetails user = user("hot-" + i);
+            String token = tokenStore.createToken(user).getAccessToken().getToken();
+            userDetailsService.warm(token, user);
+            uids.put(token, user.getUid());
+            hot[i] = request(uri, token);
+        }
+        HttpRequest[] cold = new HttpRequest[COLD_USERS];
+        for (int i = 0; i < cold.length; i++) {
+            UserDetails user = user("cold-" + i);
+            String token = tokenStore.createToken(user).getAccessToken().getToken();
+            uids.put(token, user.getUid());
+            cold[i] = request(uri, token);
+        }
+        JwtTokenStore expiredStore = JwtTokenStore.builder(SECRET).setAccessExpire(-60).build();
+        HttpRequest[] expired = new HttpRequest[BAD_TOKENS];
+        HttpRequest[] invalid = new HttpRequest[BAD_TOKENS];
+        for (int i = 0; i < BAD_TOKENS; i++) {
+            expired[i] = request(uri, expiredStore.createToken(user("expired-" + i)).getAccessToken().getToken());
+            String token = tokenStore.createToken(user("invalid-" + i)).getAccessToken().getToken();
+            invalid[i] = request(uri, token.substring(0, token.lastIndexOf('.') + 1) + "forged-signature");
+        }
+        HttpRequest missing = HttpRequest.newBuilder(uri).GET().build();
+
+        Map<String, Integer> mix = parseMix(System.getProperty("auth.stress.mix", DEFAULT_MIX));
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        LoadGenerator.Report report = new LoadGenerator(client)
+                .setThreads(Integer.getInteger("auth.stress.threads", 16))
+                .setWarmup(Duration.ofSeconds(Long.getLong("auth.stress.warmup", 3)))
+                .setDuration(Duration.ofSeconds(Long.getLong("auth.stress.duration", 10)))
+                .addScenario("VALID_HOT", mix.getOrDefault("VALID_HOT", 0), () -> pick(hot),
+                        response -> isUser(response, uids))
+                .addScenario("VALID_COLD", mix.getOrDefault("VALID_COLD", 0), () -> pick(cold),
+                        response -> isUser(response, uids))
+                .addScenario("EXPIRED", mix.getOrDefault("EXPIRED", 0), () -> pick(expired),
+                        response -> isRejected(response, "token expired"))
+                .addScenario("INVALID", mix.getOrDefault("INVALID", 0), () -> pick(invalid),
+                        response -> isRejected(response, "token invalid"))
+                .addScenario("MISSING", mix.getOrDefault("MISSING", 0), () -> missing,
+                        response -> isRejected(response, "token not present"))
+                .run();
+        report.print(System.out);
+
+        assertThat(report.getTotalCount()).isPositive();
+        assertThat(report.getFailures())
+                .as("mismatched responses, last error: %s", report.getLastError())
+                .isZero();
+    }
+
+    private static UserDetails user(String uid) {
+        return ImmutableUserDetails.of(uid, uid, new String[]{"USER"}, Collections.emptyMap());
+    }
+
+    private static HttpRequest request(URI uri, String token) {
+        return HttpRequest.newBuilder(uri).header("Authorization", "Bearer " + token).GET().build();
+    }
+
+    private static HttpRequest pick(HttpRequest[] requests) {
+        return requests[ThreadLocalRandom.current().nextInt(requests.length)];
+    }
+
+    /**
+     * 响应的用户必须是请求token对应的用户，否则说明用户在请求间串用
+     */
+    private static boolean isUser(HttpResponse<String> response, Map<String, String> uids) {
+        String token = response.request().headers().firstValue("Authorization").orElse("").substring(7);
+        return response.statusCode() == 200 && response.body().equals(uids.get(token));
+    }
+
+    private static boolean isRejected(HttpResponse<String> response, String message) {
+        return response.statusCode() == 401 && response.body().contains(message);
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] pair = entry.split("=");
+            weights.put(pair[0].trim(), Integer.parseInt(pair[1].trim()));
+        }
+        return weights;
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @EnableAutoConfiguration
+    @Import({StressController.class, StressExceptionHandler.class})
+    static class StressApplication {
+
+        @Bean
+        public StressUserDetailsService stressUserDetailsService(TokenStore tokenStore) {
+            return new StressUserDetailsService(tokenStore,
+                    TimeUnit.MICROSECONDS.toNanos(Long.getLong("auth.stress.coldLoadMicros", 200)));
+        }
+
+        @Bean
+        public AuthorizationGranter stressAuthorizationGranter() {
+            return (namespace, privilege, checkPoint) -> checkPoint.hasRole("USER");
+        }
+    }
+
+    @RestController
+    public static class StressController {
+
+        @AuthPoint(privilege = "whoami")
+        @GetMapping("/stress/whoami")
+        public String whoami() {
+            return UserDetailsHolder.currentUser().map(UserDetails::getUid).orElse("");
+        }
+    }
+
+    @RestControllerAdvice
+    public static class StressExceptionHandler {
+
+        @ExceptionHandler(UnauthorizedException.class)
+        @ResponseStatus(HttpStatus.FORBIDDEN)
+        public String onUnauthorized(UnauthorizedException e) {
+            return e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package io.github.cheivin.auth.stress;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 本地压测负载生成器
+ * <p>
+ * 每个工作线程按权重随机选择场景并同步发送请求，延迟按场景记录到线程私有的直方图中，结束后合并输出
+ */
+class LoadGenerator {
+    /**
+     * 直方图上限，60秒，单位微秒
+     */
+    private static final long HIGHEST_MICROS = TimeUnit.SECONDS.toMicros(60);
+
+    private final HttpClient client;
+    private final List<Scenario> scenarios = new ArrayList<>();
+    private int threads = 16;
+    private Duration warmup = Duration.ofSeconds(3);
+    private Duration duration = Duration.ofSeconds(10);
+
+    LoadGenerator(HttpClient client) {
+        this.client = client;
+    }
+
+    LoadGenerator setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    LoadGenerator setWarmup(Duration warmup) {
+        this.warmup = warmup;
+        return this;
+    }
+
+    LoadGenerator setDuration(Duration duration) {
+        this.duration = duration;
+        return this;
+    }
+
+    /**
+     * 添加场景，权重为0的场景不执行
+     */
+    LoadGenerator addScenario(String name, int weight, Supplier<HttpRequest> request, Predicate<HttpResponse<String>> verifier) {
+        if (weight > 0) {
+            scenarios.add(new Scenario(name, weight, request, verifier));
+        }
+        return this;
+    }
+
+    Report run() throws InterruptedException {
+        int[] cumulative = new int[scenarios.size()];
+        int total = 0;
+        for (int i = 0; i < scenarios.size(); i++) {
+            total += scenarios.get(i).weight;
+            cumulative[i] = total;
+        }
+        long warmupEnd = System.nanoTime() + warmup.toNanos();
+        long end = warmupEnd + duration.toNanos();
+        Worker[] workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(cumulative, warmupEnd, end);
+            workers[i].setName("load-" + i);
+            workers[i].start();
+        }
+        Report report = new Report(scenarios, duration);
+        for (Worker worker : workers) {
+            worker.join();
+            report.merge(worker);
+        }
+        return report;
+    }
+
+    private static final class Scenario {
+        private final String name;
+        private final int weight;
+        private final Supplier<HttpRequest> request;
+        private final Predicate<HttpResponse<String>> verifier;
+
+        private Scenario(String name, int weight, Supplier<HttpRequest> request, Predicate<HttpResponse<String>> verifier) {
+            this.name = name;
+            this.weight = weight;
+            this.request = request;
+            this.verifier = verifier;
+        }
+    }
+
+    private final class Worker extends Thread {
+        private final int[] cumulative;
+        private final long warmupEnd;
+        private final long end;
+        private final Histogram[] histograms;
+        private final long[] failures;
+        private Throwable lastError;
+
+        private Worker(int[] cumulative, long warmupEnd, long end) {
+            this.cumulative = cumulative;
+            this.warmupEnd = warmupEnd;
+            this.end = end;
+            this.histograms = new Histogram[cumulative.length];
+            this.failures = new long[cumulative.length];
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new Histogram(HIGHEST_MICROS, 3);
+            }
+        }
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long now;
+            while ((now = System.nanoTime()) < end) {
+                int index = pick(random.nextInt(cumulative[cumulative.length - 1]));
+                Scenario scenario = scenarios.get(index);
+                boolean ok;
+                try {
+                    HttpResponse<String> response = client.send(scenario.request.get(), HttpResponse.BodyHandlers.ofString());
+                    ok = scenario.verifier.test(response);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    lastError = e;
+                    ok = false;
+                }
+                if (now < warmupEnd) {
+                    continue;
+                }
+                histograms[index].recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - now), HIGHEST_MICROS));
+                if (!ok) {
+                    failures[index]++;
+                }
+            }
+        }
+
+        private int pick(int value) {
+            for (int i = 0; i < cumulative.length; i++) {
+                if (value < cumulative[i]) {
+                    return i;
+                }
+            }
+            return cumulative.length - 1;
+        }
+    }
+
+    /**
+     * 压测结果
+     */
+    static final class Report {
+        private final List<Scenario> scenarios;
+        private final Duration duration;
+        private final Histogram[] histograms;
+        private final long[] failures;
+        private final Histogram total = new Histogram(HIGHEST_MICROS, 3);
+        private Throwable lastError;
+
+        private Report(List<Scenario> scenarios, Duration duration) {
+            this.scenarios = scenarios;
+            this.duration = duration;
+            this.histograms = new Histogram[scenarios.size()];
+            this.failures = new long[scenarios.size()];
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new Histogram(HIGHEST_MICROS, 3);
+            }
+        }
+
+        private void merge(Worker worker) {
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i].add(worker.histograms[i]);
+                total.add(worker.histograms[i]);
+                failures[i] += worker.failures[i];
+            }
+            if (worker.lastError != null) {
+                lastError = worker.lastError;
+            }
+        }
+
+        long getTotalCount() {
+            return total.getTotalCount();
+        }
+
+        long getFailures() {
+            long sum = 0;
+            for (long failure : failures) {
+                sum += failure;
+            }
+            return sum;
+        }
+
+        Throwable getLastError() {
+            return lastError;
+        }
+
+        void print(PrintStream out) {
+            double seconds = duration.toMillis() / 1000.0;
+            out.printf("%-12s %10s %10s %9s %9s %9s %9s %9s %8s%n",
+                    "scenario", "requests", "req/s", "p50(us)", "p90(us)", "p99(us)", "p99.9(us)", "max(us)", "failed");
+            for (int i = 0; i < histograms.length; i++) {
+                print(out, scenarios.get(i).name, histograms[i], failures[i], seconds);
+            }
+            print(out, "total", total, getFailures(), seconds);
+        }
+
+        private static void print(PrintStream out, String name, Histogram histogram, long failures, double seconds) {
+            out.printf("%-12s %10d %10.1f %9d %9d %9d %9d %9d %8d%n",
+                    name,
+                    histogram.getTotalCount(),
+                    histogram.getTotalCount() / seconds,
+                    histogram.getValueAtPercentile(50),
+                    histogram.getValueAtPercentile(90),
+                    histogram.getValueAtPercentile(99),
+                    histogram.getValueAtPercentile(99.9),
+                    histogram.getMaxValue(),
+                    failures);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package io.github.cheivin.auth.stress;
+
+import io.github.cheivin.auth.exception.TokenInvalidException;
+import io.github.cheivin.auth.token.TokenStore;
+import io.github.cheivin.auth.user.UserDetails;
+import io.github.cheivin.auth.user.UserDetailsService;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 压测用户服务
+ * <p>
+ * 预热的用户直接从缓存返回；未缓存的用户每次从token解析，并模拟一次后端查询的耗时
+ */
+class StressUserDetailsService implements UserDetailsService {
+    private final TokenStore tokenStore;
+    private final long coldLoadNanos;
+    private final Map<String, UserDetails> cache = new ConcurrentHashMap<>();
+
+    StressUserDetailsService(TokenStore tokenStore, long coldLoadNanos) {
+        this.tokenStore = tokenStore;
+        this.coldLoadNanos = coldLoadNanos;
+    }
+
+    void warm(String token, UserDetails userDetails) {
+        cache.put(token, userDetails);
+    }
+
+    @Override
+    public Optional<UserDetails> loadUserDetailsByUid(String uid) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<UserDetails> loadUserDetailsByToken(String token) {
+        UserDetails userDetails = cache.get(token);
+        if (userDetails != null) {
+            return Optional.of(userDetails);
+        }
+        if (coldLoadNanos > 0) {
+            LockSupport.parkNanos(coldLoadNanos);
+        }
+        try {
+            return Optional.of(tokenStore.getUserDetailsByToken(token));
+        } catch (TokenInvalidException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package io.github.cheivin.auth.stress;
+
+import io.github.cheivin.auth.authentication.AuthenticationManager;
+import io.github.cheivin.auth.token.JwtTokenStore;
+import io.github.cheivin.auth.user.ImmutableUserDetails;
+import io.github.cheivin.auth.user.UserDetails;
+import io.github.cheivin.auth.user.UserDetailsHolder;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link UserDetailsHolder}并发验证
+ * <p>
+ * 固定数量的线程复用执行大量请求，交替混入有效token、未知用户、无效/缺失token以及业务抛出异常的请求，
+ * 验证过滤链内看到的用户始终是本次请求的用户，且请求结束后线程上不残留用户。
+ * 迭代次数可通过系统属性 auth.stress.iterations 调整
+ */
+@Tag("stress")
+class UserDetailsHolderConcurrencyTest {
+    private static final int USERS = 256;
+    private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    private enum Kind {
+        VALID, UNKNOWN_USER, INVALID, MISSING, THROWING
+    }
+
+    @Test
+    void userNeverLeaksAcrossRequests() throws Exception {
+        JwtTokenStore tokenStore = JwtTokenStore.builder("holder-test-secret").build();
+        String[] tokens = new String[USERS];
+        for (int i = 0; i < USERS; i++) {
+            tokens[i] = tokenStore.createToken(ImmutableUserDetails.of("u" + i, "u" + i, new String[]{"USER"}, Collections.emptyMap()))
+                    .getAccessToken().getToken();
+        }
+        String unknownToken = tokenStore.createToken(ImmutableUserDetails.of("unknown", "unknown", new String[0], Collections.emptyMap()))
+                .getAccessToken().getToken();
+        // 未知用户token验证通过，但用户服务查不到用户，过滤链内不应看到任何用户
+        StressUserDetailsService userDetailsService = new StressUserDetailsService(tokenStore, 0) {
+            @Override
+            public Optional<UserDetails> loadUserDetailsByToken(String token) {
+                return unknownToken.equals(token) ? Optional.empty() : super.loadUserDetailsByToken(token);
+            }
+        };
+        AuthenticationManager manager = AuthenticationManager.builder(userDetailsService, tokenStore).build();
+
+        int iterations = Integer.getInteger("auth.stress.iterations", 100_000);
+        ConcurrentLinkedQueue<String> errors = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < iterations / THREADS && errors.isEmpty(); i++) {
+                        Kind kind = Kind.values()[random.nextInt(Kind.values().length)];
+                        int user = random.nextInt(USERS);
+                        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/resource");
+                        switch (kind) {
+                            case VALID:
+                            case THROWING:
+                                request.addHeader("Authorization", "Bearer " + tokens[user]);
+                                break;
+                            case UNKNOWN_USER:
+                                request.addHeader("Authorization", "Bearer " + unknownToken);
+                                break;
+                            case INVALID:
+                                request.addHeader("Authorization", "Bearer " + tokens[user].substring(0, tokens[user].lastIndexOf('.') + 1) + "forged");
+                                break;
+                            default:
+                                break;
+                        }
+                        String expected = kind == Kind.VALID || kind == Kind.THROWING ? "u" + user : null;
+                        FilterChain chain = (req, res) -> {
+                            String actual = UserDetailsHolder.currentUser().map(UserDetails::getUid).orElse(null);
+                            if (expected == null ? actual != null : !expected.equals(actual)) {
+                                errors.add(kind + " expected " + expected + " but saw " + actual);
+                            }
+                            if (kind == Kind.THROWING) {
+                                throw new IllegalStateException("business failure");
+                            }
+                        };
+                        try {
+                            manager.doFilter(request, new MockHttpServletResponse(), chain);
+                        } catch (IllegalStateException e) {
+                            // 业务异常，忽略
+                        }
+                        if (UserDetailsHolder.currentUser().isPresent()) {
+                            errors.add(kind + " left " + UserDetailsHolder.currentUser().get().getUid() + " on " + Thread.currentThread().getName());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(errors).isEmpty();
+    }
+}
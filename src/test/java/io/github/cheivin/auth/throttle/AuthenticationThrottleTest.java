@@ -0,0 +1,181 @@
+package io.github.cheivin.auth.throttle;
+
+import io.github.cheivin.auth.authentication.AuthenticationManager;
+import io.github.cheivin.auth.clock.ManualAuthClock;
+import io.github.cheivin.auth.token.JwtTokenStore;
+import io.github.cheivin.auth.user.ImmutableUserDetails;
+import io.github.cheivin.auth.user.UserDetails;
+import io.github.cheivin.auth.user.UserDetailsService;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuthenticationThrottleTest {
+    private final ManualAuthClock clock = new ManualAuthClock();
+
+    private AuthenticationThrottle throttle(int capacity, double refillPerSecond) {
+        return AuthenticationThrottle.builder()
+                .setCapacity(capacity)
+                .setRefillPerSecond(refillPerSecond)
+                .setClock(clock)
+                .build();
+    }
+
+    @Test
+    void tokenKeySkipsSharedJwtHeader() {
+        JwtTokenStore tokenStore = JwtTokenStore.builder("throttle-test-secret").build();
+        String alice = tokenStore.createToken(ImmutableUserDetails.of("alice", "alice", new String[0], Collections.emptyMap()))
+                .getAccessToken().getToken();
+        String bob = tokenStore.createToken(ImmutableUserDetails.of("bob", "bob", new String[0], Collections.emptyMap()))
+                .getAccessToken().getToken();
+        String forged = alice.substring(0, alice.indexOf('.') + 1) + "Zm9yZ2VkLXBheWxvYWQ.c2lnbmF0dXJl";
+        assertThat(alice.substring(0, alice.indexOf('.'))).isEqualTo(bob.substring(0, bob.indexOf('.')));
+
+        ThrottleKeyResolver resolver = ThrottleKeyResolver.tokenPrefix(64);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        int aliceKey = resolver.resolve(request, alice);
+        int bobKey = resolver.resolve(request, bob);
+        int forgedKey = resolver.resolve(request, forged);
+        assertThat(aliceKey).isNotEqualTo(bobKey).isNotEqualTo(forgedKey);
+        assertThat(bobKey).isNotEqualTo(forgedKey);
+        assertThat(resolver.resolve(request, alice)).isEqualTo(aliceKey);
+    }
+
+    @Test
+    void throttlesAtCapacityAndLeaksOverTime() {
+        AuthenticationThrottle throttle = throttle(3, 1);
+        throttle.onFailure(1);
+        throttle.onFailure(1);
+        assertThat(throttle.isThrottled(1)).isFalse();
+        throttle.onFailure(1);
+        assertThat(throttle.isThrottled(1)).isTrue();
+        assertThat(throttle.isThrottled(2)).isFalse();
+
+        // 恢复不足一次完整失败时仍然限流
+        clock.advance(Duration.ofMillis(1));
+        assertThat(throttle.isThrottled(1)).isTrue();
+        clock.advance(Duration.ofMillis(998));
+        assertThat(throttle.isThrottled(1)).isTrue();
+
+        // 恢复满1次后放行1次
+        clock.advance(Duration.ofMillis(1));
+        assertThat(throttle.isThrottled(1)).isFalse();
+        throttle.onFailure(1);
+        assertThat(throttle.isThrottled(1)).isTrue();
+
+        // 恢复2次后还可以失败2次
+        clock.advance(Duration.ofSeconds(2));
+        throttle.onFailure(1);
+        assertThat(throttle.isThrottled(1)).isFalse();
+        throttle.onFailure(1);
+        assertThat(throttle.isThrottled(1)).isTrue();
+    }
+
+    @Test
+    void throttledClientIsAdmittedAtRefillRate() {
+        AuthenticationThrottle throttle = throttle(3, 1);
+        for (int i = 0; i < 3; i++) {
+            throttle.onFailure(1);
+        }
+        int admitted = 0;
+        for (int ms = 0; ms < 10_000; ms++) {
+            clock.advance(Duration.ofMillis(1));
+            if (!throttle.isThrottled(1)) {
+                admitted++;
+                throttle.onFailure(1);
+            }
+        }
+        assertThat(admitted).isEqualTo(10);
+    }
+
+    @Test
+    void onlyInvalidTokensAreCounted() throws Exception {
+        JwtTokenStore tokenStore = JwtTokenStore.builder("throttle-test-secret").setClock(clock).build();
+        String expired = JwtTokenStore.builder("throttle-test-secret").setClock(clock).setAccessExpire(-60).build()
+                .createToken(ImmutableUserDetails.of("alice", "alice", new String[0], Collections.emptyMap()))
+                .getAccessToken().getToken();
+        String forged = expired.substring(0, expired.lastIndexOf('.') + 1) + "forged";
+        AuthenticationManager manager = AuthenticationManager.builder(new UserDetailsService() {
+            @Override
+            public Optional<UserDetails> loadUserDetailsByUid(String uid) {
+                return Optional.empty();
+            }
+
+            @Override
+            public Optional<UserDetails> loadUserDetailsByToken(String token) {
+                return Optional.empty();
+            }
+        }, tokenStore).setThrottle(throttle(1, 1)).build();
+
+        assertThat(statusOf(manager, expired)).isEqualTo(401);
+        assertThat(statusOf(manager, expired)).isEqualTo(401);
+        assertThat(statusOf(manager, forged)).isEqualTo(401);
+        assertThat(statusOf(manager, forged)).isEqualTo(429);
+        assertThat(statusOf(manager, expired)).isEqualTo(429);
+    }
+
+    private static int statusOf(AuthenticationManager manager, String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/resource");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        manager.doFilter(request, response, new MockFilterChain());
+        return response.getStatus();
+    }
+
+    @Test
+    void countIsCappedAtCapacity() {
+        AuthenticationThrottle throttle = throttle(3, 1);
+        for (int i = 0; i < 100; i++) {
+            throttle.onFailure(1);
+        }
+        assertThat(throttle.isThrottled(1)).isTrue();
+        clock.advance(Duration.ofSeconds(1));
+        assertThat(throttle.isThrottled(1)).isFalse();
+        throttle.onFailure(1);
+        assertThat(throttle.isThrottled(1)).isTrue();
+    }
+
+    @Test
+    void concurrentFailuresAreNotLost() throws Exception {
+        int threads = 8;
+        int perThread = 1000;
+        AuthenticationThrottle throttle = throttle(threads * perThread, 0.001);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int count = t == 0 ? perThread - 1 : perThread;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < count; i++) {
+                        throttle.onFailure(7);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(throttle.isThrottled(7)).isFalse();
+        throttle.onFailure(7);
+        assertThat(throttle.isThrottled(7)).isTrue();
+    }
+}
@@ -0,0 +1,55 @@
+package io.github.cheivin.auth.token;
+
+import io.github.cheivin.auth.clock.ManualAuthClock;
+import io.github.cheivin.auth.exception.TokenExpiredException;
+import io.github.cheivin.auth.user.ImmutableUserDetails;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtTokenStoreClockTest {
+    private final ManualAuthClock clock = new ManualAuthClock();
+    private final JwtTokenStore tokenStore = JwtTokenStore.builder("clock-test-secret")
+            .setAccessExpire(60)
+            .setRefreshExpire(600)
+            .setClock(clock)
+            .build();
+
+    private String accessToken() {
+        return tokenStore.createToken(ImmutableUserDetails.of("u1", "u1", new String[]{"USER"}, Collections.emptyMap()))
+                .getAccessToken().getToken();
+    }
+
+    @Test
+    void accessTokenExpiresExactlyAtTtl() throws Exception {
+        String token = accessToken();
+        assertThat(tokenStore.verifyAccessToken(token)).contains(60L);
+
+        clock.advance(Duration.ofSeconds(60));
+        assertThat(tokenStore.verifyAccessToken(token)).contains(0L);
+
+        clock.advance(Duration.ofMillis(1));
+        assertThatThrownBy(() -> tokenStore.verifyAccessToken(token)).isInstanceOf(TokenExpiredException.class);
+    }
+
+    @Test
+    void refreshTokenIsReissuedOnlyNearExpiry() throws Exception {
+        AuthenticationToken token = tokenStore.createToken(ImmutableUserDetails.of("u1", "u1", new String[]{"USER"}, Collections.emptyMap()));
+        String refreshToken = token.getRefreshToken().getToken();
+        ImmutableUserDetails user = ImmutableUserDetails.of("u1", "u1", new String[]{"USER"}, Collections.emptyMap());
+
+        clock.advance(Duration.ofSeconds(100));
+        AuthenticationToken kept = tokenStore.refreshToken(refreshToken, user);
+        assertThat(kept.getRefreshToken().getToken()).isEqualTo(refreshToken);
+        assertThat(kept.getRefreshToken().getExpiresIn()).isEqualTo(500);
+
+        clock.advance(Duration.ofSeconds(440));
+        AuthenticationToken renewed = tokenStore.refreshToken(refreshToken, user);
+        assertThat(renewed.getRefreshToken().getToken()).isNotEqualTo(refreshToken);
+        assertThat(renewed.getRefreshToken().getExpiresIn()).isEqualTo(600);
+    }
+}
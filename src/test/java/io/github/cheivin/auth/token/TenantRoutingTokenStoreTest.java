@@ -0,0 +1,95 @@
+package io.github.cheivin.auth.token;
+
+import io.github.cheivin.auth.clock.ManualAuthClock;
+import io.github.cheivin.auth.exception.TokenExpiredException;
+import io.github.cheivin.auth.exception.TokenInvalidException;
+import io.github.cheivin.auth.user.ImmutableUserDetails;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TenantRoutingTokenStoreTest {
+    private final ManualAuthClock clock = new ManualAuthClock();
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final TenantRoutingTokenStore tokenStore = TenantRoutingTokenStore.builder(tenant -> {
+        lookups.incrementAndGet();
+        return "a".equals(tenant)
+                ? Optional.of(JwtTokenStore.builder("tenant-a-secret").setAccessExpire(60))
+                : Optional.empty();
+    }).setUnknownTenantTtl(Duration.ofMinutes(1)).setClock(clock).build();
+
+    private static String tokenOf(String issuer) {
+        return JwtTokenStore.builder("forged-secret").setIssuer(issuer).build()
+                .createToken(ImmutableUserDetails.of("u1", "u1", new String[0], Collections.emptyMap()))
+                .getAccessToken().getToken();
+    }
+
+    @Test
+    void unknownTenantIsLookedUpOncePerTtl() {
+        String token = tokenOf("ghost");
+        for (int i = 0; i < 10; i++) {
+            assertThatThrownBy(() -> tokenStore.verifyAccessToken(token)).isInstanceOf(TokenInvalidException.class);
+        }
+        assertThat(lookups).hasValue(1);
+
+        clock.advance(Duration.ofMinutes(1));
+        assertThatThrownBy(() -> tokenStore.verifyAccessToken(token)).isInstanceOf(TokenInvalidException.class);
+        assertThat(lookups).hasValue(2);
+    }
+
+    @Test
+    void tenantStoresUseConfiguredClock() throws Exception {
+        String token = tokenStore.createToken(ImmutableUserDetails.of("u1", "u1", new String[0], Collections.singletonMap("tenant", "a")))
+                .getAccessToken().getToken();
+        assertThat(tokenStore.verifyAccessToken(token)).contains(60L);
+
+        clock.advance(Duration.ofSeconds(61));
+        assertThatThrownBy(() -> tokenStore.verifyAccessToken(token)).isInstanceOf(TokenExpiredException.class);
+    }
+
+    @Test
+    void rotatingIssuersAreLimitedPerSecond() throws Exception {
+        TenantRoutingTokenStore limited = TenantRoutingTokenStore.builder(tenant -> {
+            lookups.incrementAndGet();
+            return "a".equals(tenant)
+                    ? Optional.of(JwtTokenStore.builder("tenant-a-secret"))
+                    : Optional.empty();
+        }).setMaxLookupsPerSecond(5).setClock(clock).build();
+        for (int i = 0; i < 100; i++) {
+            String token = tokenOf("ghost-" + i);
+            assertThatThrownBy(() -> limited.verifyAccessToken(token)).isInstanceOf(TokenInvalidException.class);
+        }
+        assertThat(lookups).hasValue(5);
+        assertThat(ReflectionTestUtils.getField(limited, "unknownTenants")).asInstanceOf(InstanceOfAssertFactories.MAP).hasSize(5);
+
+        // 按用户属性签发不受限额影响
+        String token = limited.createToken(ImmutableUserDetails.of("u1", "u1", new String[0], Collections.singletonMap("tenant", "a")))
+                .getAccessToken().getToken();
+        assertThat(limited.verifyAccessToken(token)).isPresent();
+
+        clock.advance(Duration.ofSeconds(1));
+        assertThatThrownBy(() -> limited.verifyAccessToken(tokenOf("ghost-next"))).isInstanceOf(TokenInvalidException.class);
+        assertThat(lookups).hasValue(7);
+    }
+
+    @Test
+    void issuersOutsideAllowListAreNotLookedUp() {
+        TenantRoutingTokenStore allowList = TenantRoutingTokenStore.builder(tenant -> {
+            lookups.incrementAndGet();
+            return Optional.of(JwtTokenStore.builder("tenant-secret"));
+        }).setAllowedTenants(Set.of("a")).setClock(clock).build();
+        assertThatThrownBy(() -> allowList.verifyAccessToken(tokenOf("ghost"))).isInstanceOf(TokenInvalidException.class);
+        assertThat(lookups).hasValue(0);
+        assertThatThrownBy(() -> allowList.verifyAccessToken(tokenOf("a"))).isInstanceOf(TokenInvalidException.class);
+        assertThat(lookups).hasValue(1);
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.cheivin.auth.trace;
+
+import io.github.cheivin.auth.annotation.AuthPoint;
+import io.github.cheivin.auth.authorization.AuthorizationManager;
+import io.github.cheivin.auth.exception.UnauthorizedException;
+import io.github.cheivin.auth.metrics.AuthMetrics;
+import io.github.cheivin.auth.trace.AuthTracer.Stage;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RingBufferAuthTracerTest {
+    private final RingBufferAuthTracer tracer = new RingBufferAuthTracer(4);
+
+    public static class Documents {
+        @AuthPoint(privilege = "read")
+        public void read() throws UnauthorizedException {
+        }
+    }
+
+    @Test
+    void elapsedIsMeasuredFromBeginStart() {
+        long start = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(50);
+        tracer.begin("/a", start);
+        tracer.stage(Stage.TOKEN_VERIFY, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(5));
+        tracer.end();
+
+        TraceRecord record = tracer.dump(1).get(0);
+        assertThat(record.getName()).isEqualTo("/a");
+        assertThat(record.getDuration(Stage.TOKEN_VERIFY)).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(5));
+        assertThat(record.getTotal()).isEqualTo(record.getDuration(Stage.TOKEN_VERIFY));
+        assertThat(record.getElapsed()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    void stagesOutsideTraceAreIgnored() {
+        tracer.stage(Stage.PATH_MATCH, System.nanoTime() - 1000);
+        tracer.end();
+        assertThat(tracer.dump(10)).isEmpty();
+
+        tracer.begin("/a", System.nanoTime());
+        tracer.end();
+        tracer.stage(Stage.PATH_MATCH, System.nanoTime() - 1000);
+        tracer.end();
+        assertThat(tracer.dump(10)).hasSize(1);
+        assertThat(tracer.dump(10).get(0).getTotal()).isZero();
+    }
+
+    @Test
+    void bufferKeepsLatestRecordsAndDumpsSlowestFirst() {
+        for (int i = 1; i <= 6; i++) {
+            tracer.begin("/" + i, System.nanoTime());
+            tracer.stage(Stage.TOKEN_VERIFY, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(i));
+            tracer.end();
+        }
+        List<TraceRecord> records = tracer.dump(10);
+        assertThat(records).extracting(TraceRecord::getName).containsExactly("/6", "/5", "/4", "/3");
+        assertThat(tracer.dump(2)).extracting(TraceRecord::getName).containsExactly("/6", "/5");
+
+        tracer.clear();
+        assertThat(tracer.dump(10)).isEmpty();
+    }
+
+    @Test
+    void authorizationIsTracedWhenGranterThrows() {
+        AuthorizationManager manager = new AuthorizationManager((namespace, privilege, checkPoint) -> {
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("granter unavailable");
+        }, AuthMetrics.NOOP, tracer);
+        AspectJProxyFactory factory = new AspectJProxyFactory(new Documents());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(manager);
+        Documents documents = factory.getProxy();
+
+        tracer.begin("/documents", System.nanoTime());
+        try {
+            assertThatThrownBy(documents::read).isInstanceOf(IllegalStateException.class);
+        } finally {
+            tracer.end();
+        }
+        assertThat(tracer.dump(1).get(0).getDuration(Stage.AUTHORIZATION))
+                .isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.cheivin.auth.user;
+
+import io.github.cheivin.auth.token.JwtTokenStore;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImmutableUserDetailsTest {
+    private static final String SECRET = "immutable-test-secret";
+
+    private final JwtTokenStore tokenStore = JwtTokenStore.builder(SECRET).build();
+
+    private static Map<String, String> attributes() {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        attributes.put("tenant", "a");
+        attributes.put("dept", "rd");
+        return attributes;
+    }
+
+    private Object userClaim(UserDetails userDetails) {
+        String token = tokenStore.createToken(userDetails).getAccessToken().getToken();
+        return Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token).getBody().get("user");
+    }
+
+    @Test
+    void serializesToSameClaimsAsDefault() {
+        DefaultUserDetails mutable = DefaultUserDetails.builder()
+                .uid("u1").name("alice").roles(new String[]{"MANAGER", "ADMIN"}).attributes(attributes())
+                .build();
+        assertThat(userClaim(ImmutableUserDetails.copyOf(mutable)))
+                .isEqualTo(userClaim(UserDetails.builder()
+                        .uid("u1").name("alice").roles(new String[]{"ADMIN", "MANAGER"}).attributes(attributes())
+                        .build()));
+    }
+
+    @Test
+    void parsedUserIsImmutableAndCopyDropsToken() throws Exception {
+        String token = tokenStore.createToken(ImmutableUserDetails.of("u1", "alice", new String[]{"USER"}, attributes()))
+                .getAccessToken().getToken();
+        UserDetails parsed = tokenStore.getUserDetailsByToken(token);
+        assertThat(parsed).isInstanceOf(ImmutableUserDetails.class);
+        assertThat(parsed.getToken()).isSameAs(token);
+        assertThat(parsed.getAttributes()).containsExactlyEntriesOf(attributes());
+        assertThat(parsed.getRoles()).containsExactly("USER");
+
+        ImmutableUserDetails cached = ImmutableUserDetails.copyOf(parsed);
+        assertThat(cached.getToken()).isNull();
+        assertThat(cached).isEqualTo(parsed).hasSameHashCodeAs(parsed);
+        assertThat(ImmutableUserDetails.copyOf(cached)).isSameAs(cached);
+        assertThat(userClaim(parsed)).isEqualTo(userClaim(cached));
+    }
+
+    @Test
+    void roleChecksHonorHierarchy() {
+        RoleHierarchy previous = UserDetailsHolder.getRoleHierarchy();
+        UserDetailsHolder.setRoleHierarchy(RoleHierarchy.of("ADMIN > USER"));
+        try {
+            UserDetailsHolder.init(ImmutableUserDetails.of("u1", "alice", new String[]{"ADMIN"}, null));
+            assertThat(UserDetailsHolder.hasRole("USER")).isTrue();
+            assertThat(UserDetailsHolder.hasRole("AUDITOR")).isFalse();
+        } finally {
+            UserDetailsHolder.invalid();
+            UserDetailsHolder.setRoleHierarchy(previous);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package io.github.cheivin.auth.user;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.StringJoiner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RoleHierarchyTest {
+
+    private static boolean has(RoleHierarchy hierarchy, String held, String role) {
+        return hierarchy.hasRole(new String[]{held}, role);
+    }
+
+    @Test
+    void chainIsTransitive() {
+        RoleHierarchy hierarchy = RoleHierarchy.of("ADMIN > MANAGER > NORMAL");
+        assertThat(has(hierarchy, "ADMIN", "NORMAL")).isTrue();
+        assertThat(has(hierarchy, "MANAGER", "NORMAL")).isTrue();
+        assertThat(has(hierarchy, "NORMAL", "MANAGER")).isFalse();
+        assertThat(has(hierarchy, "MANAGER", "ADMIN")).isFalse();
+        assertThat(hierarchy.getReachableRoles("ADMIN")).containsExactlyInAnyOrder("ADMIN", "MANAGER", "NORMAL");
+    }
+
+    @Test
+    void rolesSharedAcrossLinesAreMerged() {
+        RoleHierarchy hierarchy = RoleHierarchy.of("# 注释\nADMIN > MANAGER\n\nMANAGER > NORMAL\nAUDITOR > NORMAL > GUEST");
+        assertThat(has(hierarchy, "ADMIN", "GUEST")).isTrue();
+        assertThat(has(hierarchy, "AUDITOR", "NORMAL")).isTrue();
+        assertThat(has(hierarchy, "AUDITOR", "MANAGER")).isFalse();
+        assertThat(hierarchy.getReachableRoles("MANAGER")).containsExactlyInAnyOrder("MANAGER", "NORMAL", "GUEST");
+        assertThat(hierarchy.getReachableRoles("UNKNOWN")).containsExactly("UNKNOWN");
+        assertThat(hierarchy.hasRole(new String[]{"GUEST", "AUDITOR"}, "NORMAL")).isTrue();
+    }
+
+    @Test
+    void cyclesTerminateAndMakeRolesEquivalent() {
+        RoleHierarchy hierarchy = RoleHierarchy.of("A > B > C\nC > A\nC > D");
+        for (String role : new String[]{"A", "B", "C"}) {
+            assertThat(hierarchy.getReachableRoles(role)).containsExactlyInAnyOrder("A", "B", "C", "D");
+        }
+        assertThat(has(hierarchy, "D", "A")).isFalse();
+    }
+
+    @Test
+    void closureSpansMultipleBitmapWords() {
+        StringJoiner chain = new StringJoiner(" > ");
+        for (int i = 0; i < 150; i++) {
+            chain.add("R" + i);
+        }
+        RoleHierarchy hierarchy = RoleHierarchy.of(chain + "\nX > R130");
+        assertThat(has(hierarchy, "R0", "R149")).isTrue();
+        assertThat(has(hierarchy, "R63", "R64")).isTrue();
+        assertThat(has(hierarchy, "R64", "R63")).isFalse();
+        assertThat(has(hierarchy, "R127", "R128")).isTrue();
+        assertThat(has(hierarchy, "X", "R149")).isTrue();
+        assertThat(has(hierarchy, "X", "R129")).isFalse();
+        assertThat(hierarchy.getReachableRoles("R60")).hasSize(90);
+        assertThat(hierarchy.getReachableRoles("X")).hasSize(21);
+    }
+
+    @Test
+    void invalidDefinitionIsRejected() {
+        assertThatThrownBy(() -> RoleHierarchy.of("ADMIN")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RoleHierarchy.of("ADMIN > ")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RoleHierarchy.of("ADMIN > > NORMAL")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void reloadKeepsPreviousSnapshotOnParseError(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("roles.txt");
+        Files.writeString(file, "ADMIN > NORMAL", StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1_000_000L));
+        RoleHierarchy hierarchy = RoleHierarchy.fromFile(file);
+        assertThat(hierarchy.reloadIfModified()).isFalse();
+
+        Files.writeString(file, "ADMIN >", StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(2_000_000L));
+        assertThat(hierarchy.reloadIfModified()).isFalse();
+        assertThat(has(hierarchy, "ADMIN", "NORMAL")).isTrue();
+
+        // 失败的修改时间已记录，修改时间不变时不再解析
+        Files.writeString(file, "OWNER > EDITOR", StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(2_000_000L));
+        assertThat(hierarchy.reloadIfModified()).isFalse();
+        assertThat(has(hierarchy, "OWNER", "EDITOR")).isFalse();
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(3_000_000L));
+        assertThat(hierarchy.reloadIfModified()).isTrue();
+        assertThat(has(hierarchy, "OWNER", "EDITOR")).isTrue();
+        assertThat(has(hierarchy, "ADMIN", "NORMAL")).isFalse();
+    }
+
+    @Test
+    void missingFileKeepsSnapshotUntilRestored(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("roles.txt");
+        Files.writeString(file, "ADMIN > NORMAL", StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1_000_000L));
+        RoleHierarchy hierarchy = RoleHierarchy.fromFile(file);
+
+        Files.delete(file);
+        assertThat(hierarchy.reloadIfModified()).isFalse();
+        assertThat(hierarchy.reloadIfModified()).isFalse();
+        assertThat(has(hierarchy, "ADMIN", "NORMAL")).isTrue();
+
+        // 恢复为原修改时间也视为修改
+        Files.writeString(file, "OWNER > EDITOR", StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1_000_000L));
+        assertThat(hierarchy.reloadIfModified()).isTrue();
+        assertThat(has(hierarchy, "OWNER", "EDITOR")).isTrue();
+    }
+}